@@ -0,0 +1,291 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Calculates fingerprint of the files which are build inputs of the Gradle project. It covers the whole build the
+ * project belongs to: Gradle scripts and gradle.properties of all projects in the root project directory (including
+ * settings.gradle) are fingerprinted by contents, as well as init scripts and gradle.properties from Gradle user home.
+ * Files in buildSrc and in the <i>gradle</i> directory of the root project are fingerprinted too, other files by their
+ * size and modification time. Sources don't affect the model, so source directories are not read at all, neither are
+ * output directories, hidden directories and nested builds. It's calculated in the same way by the Forge plugin and by
+ * the addon, so both sides can tell if the model is still valid without evaluating the project.
+ * <p/>
+ * Fingerprint can't tell if dynamic or changing dependencies resolve differently, models of projects with such
+ * dependencies have to be evaluated again by Gradle.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleBuildFingerprint
+{
+   public static final String SETTINGS_SCRIPT = "settings.gradle";
+   public static final String GRADLE_PROPERTIES = "gradle.properties";
+   public static final String SCRIPTS_DIR = "gradle";
+
+   private static final String BUILD_DIR = "build";
+   private static final String SOURCE_DIR = "src";
+   private static final String BUILD_SRC_DIR = "buildSrc";
+   private static final String INIT_SCRIPT = "init.gradle";
+   private static final String INIT_SCRIPTS_DIR = "init.d";
+
+   private static final Charset UTF_8 = Charset.forName("UTF-8");
+   private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+   private GradleBuildFingerprint()
+   {
+   }
+
+   /**
+    * Calculates fingerprint of build inputs of the project in given directory.
+    *
+    * @param projectDir Project directory.
+    * @param pluginVersion Version of the Forge plugin which evaluates the model, may be null.
+    */
+   public static String calculate(File projectDir, String pluginVersion)
+   {
+      return calculate(projectDir, pluginVersion, digestBuildInputs(findRootDir(projectDir)));
+   }
+
+   /**
+    * Calculates fingerprint of build inputs of the project in given directory, using digest of the build inputs
+    * calculated by {@link #digestBuildInputs(File)}. Useful when fingerprints of several projects of the same build are
+    * needed, since the build directory is read only once.
+    */
+   public static String calculate(File projectDir, String pluginVersion, String buildInputsDigest)
+   {
+      MessageDigest digest = sha1();
+      update(digest, String.valueOf(pluginVersion));
+      update(digest, projectDir.getAbsolutePath());
+      update(digest, buildInputsDigest);
+      return toHex(digest.digest());
+   }
+
+   /**
+    * Calculates fingerprint of the model of a project with dynamic or changing dependencies, which depends not only on
+    * build inputs but also on the files the dependencies resolved to.
+    */
+   public static String withResolvedFiles(String fingerprint, List<String> resolvedFiles)
+   {
+      MessageDigest digest = sha1();
+      update(digest, fingerprint);
+      for (String file : resolvedFiles)
+      {
+         update(digest, file);
+      }
+      return toHex(digest.digest());
+   }
+
+   /**
+    * Returns digest of build inputs of the build in given root directory.
+    */
+   public static String digestBuildInputs(File rootDir)
+   {
+      MessageDigest digest = sha1();
+      rootDir = rootDir.getAbsoluteFile();
+      digestScripts(digest, rootDir, true);
+      digestFiles(digest, new File(rootDir, BUILD_SRC_DIR));
+      digestFiles(digest, new File(rootDir, SCRIPTS_DIR));
+
+      File userHome = gradleUserHome();
+      digestScript(digest, new File(userHome, GRADLE_PROPERTIES));
+      digestScript(digest, new File(userHome, INIT_SCRIPT));
+      File[] initScripts = new File(userHome, INIT_SCRIPTS_DIR).listFiles();
+      if (initScripts != null)
+      {
+         Arrays.sort(initScripts);
+         for (File initScript : initScripts)
+         {
+            if (initScript.getName().endsWith(".gradle"))
+            {
+               digestScript(digest, initScript);
+            }
+         }
+      }
+      return toHex(digest.digest());
+   }
+
+   /**
+    * Returns the nearest directory containing settings.gradle, starting from project directory. If there is none then
+    * project directory is considered root directory, the same as Gradle does.
+    */
+   public static File findRootDir(File projectDir)
+   {
+      projectDir = projectDir.getAbsoluteFile();
+      for (File dir = projectDir; dir != null; dir = dir.getParentFile())
+      {
+         if (new File(dir, SETTINGS_SCRIPT).isFile())
+         {
+            return dir;
+         }
+      }
+      return projectDir;
+   }
+
+   /**
+    * Digests scripts in given directory and in directories of projects below it. Source, output and hidden
+    * directories are skipped, as well as buildSrc and <i>gradle</i> directory of the root, which are digested whole.
+    */
+   private static void digestScripts(MessageDigest digest, File dir, boolean root)
+   {
+      File[] files = dir.listFiles();
+      if (files == null)
+      {
+         return;
+      }
+      if (!root && new File(dir, SETTINGS_SCRIPT).isFile())
+      {
+         // Nested build, which is evaluated separately
+         return;
+      }
+      Arrays.sort(files);
+      for (File file : files)
+      {
+         String name = file.getName();
+         if (Files.isSymbolicLink(file.toPath()))
+         {
+            continue;
+         }
+         if (isScript(name))
+         {
+            digestScript(digest, file);
+         }
+         else if (!isSkippedDir(name) && !name.equals(SOURCE_DIR)
+                  && !(root && (name.equals(BUILD_SRC_DIR) || name.equals(SCRIPTS_DIR))) && file.isDirectory())
+         {
+            digestScripts(digest, file, false);
+         }
+      }
+   }
+
+   /**
+    * Digests all files in given directory, scripts by contents, other files by their size and modification time.
+    */
+   private static void digestFiles(MessageDigest digest, File dir)
+   {
+      File[] files = dir.listFiles();
+      if (files == null)
+      {
+         return;
+      }
+      Arrays.sort(files);
+      for (File file : files)
+      {
+         String name = file.getName();
+         if (Files.isSymbolicLink(file.toPath()))
+         {
+            continue;
+         }
+         if (file.isDirectory())
+         {
+            if (!isSkippedDir(name))
+            {
+               digestFiles(digest, file);
+            }
+         }
+         else if (isScript(name))
+         {
+            digestScript(digest, file);
+         }
+         else
+         {
+            update(digest, file.getPath());
+            update(digest, file.length() + ":" + file.lastModified());
+         }
+      }
+   }
+
+   private static boolean isSkippedDir(String name)
+   {
+      return name.startsWith(".") || name.equals(BUILD_DIR);
+   }
+
+   private static boolean isScript(String name)
+   {
+      return name.endsWith(".gradle") || name.equals(GRADLE_PROPERTIES);
+   }
+
+   private static void digestScript(MessageDigest digest, File file)
+   {
+      if (!file.isFile())
+      {
+         return;
+      }
+      update(digest, file.getPath());
+      byte[] buffer = new byte[8192];
+      try (InputStream input = new FileInputStream(file))
+      {
+         int read;
+         while ((read = input.read(buffer)) != -1)
+         {
+            digest.update(buffer, 0, read);
+         }
+      }
+      catch (IOException e)
+      {
+         // File which can't be read is fingerprinted by its metadata
+         update(digest, file.length() + ":" + file.lastModified());
+      }
+   }
+
+   private static void update(MessageDigest digest, String value)
+   {
+      digest.update((byte) 0);
+      digest.update(value.getBytes(UTF_8));
+      digest.update((byte) 0);
+   }
+
+   /**
+    * Returns Gradle user home directory, resolved the same way as Gradle does by default.
+    */
+   private static File gradleUserHome()
+   {
+      String userHome = System.getProperty("gradle.user.home");
+      if (userHome == null || userHome.isEmpty())
+      {
+         userHome = System.getenv("GRADLE_USER_HOME");
+      }
+      if (userHome == null || userHome.isEmpty())
+      {
+         return new File(System.getProperty("user.home"), ".gradle");
+      }
+      return new File(userHome);
+   }
+
+   private static MessageDigest sha1()
+   {
+      try
+      {
+         return MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private static String toHex(byte[] bytes)
+   {
+      char[] chars = new char[bytes.length * 2];
+      for (int i = 0; i < bytes.length; i++)
+      {
+         chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+         chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+      }
+      return new String(chars);
+   }
+}
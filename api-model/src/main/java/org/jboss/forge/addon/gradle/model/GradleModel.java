@@ -206,4 +206,18 @@ public interface GradleModel
     * Returns list of Gradle source sets.
     */
    List<GradleSourceSet> getEffectiveSourceSets();
+
+   /**
+    * Returns fingerprint of the build inputs from which the effective model was evaluated. For projects with dynamic or
+    * changing dependencies it covers also the files those dependencies resolved to.
+    * 
+    * @see GradleBuildFingerprint
+    */
+   String getFingerprint();
+
+   /**
+    * Returns true if the effective model didn't change since the version requested by the client. Such model carries
+    * only its fingerprint, client is expected to use its cached copy instead.
+    */
+   boolean isNotModified();
 }
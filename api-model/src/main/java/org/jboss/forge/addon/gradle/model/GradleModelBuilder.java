@@ -43,6 +43,8 @@ public class GradleModelBuilder implements GradleModel, Serializable
    private Map<String, String> properties = new HashMap<String, String>();
    private Map<String, String> effectiveProperties = new HashMap<String, String>();
    private List<GradleSourceSet> effectiveSourceSets = new ArrayList<GradleSourceSet>();
+   private String fingerprint = "";
+   private boolean notModified;
 
    GradleModelBuilder()
    {
@@ -83,6 +85,8 @@ public class GradleModelBuilder implements GradleModel, Serializable
       builder.properties = new HashMap<String, String>(model.getProperties());
       builder.effectiveProperties = new HashMap<String, String>(model.getEffectiveProperties());
       builder.effectiveSourceSets = GradleSourceSetBuilder.deepCopy(model.getEffectiveSourceSets());
+      builder.fingerprint = model.getFingerprint();
+      builder.notModified = model.isNotModified();
 
       return builder;
    }
@@ -483,6 +487,30 @@ public class GradleModelBuilder implements GradleModel, Serializable
       return this;
    }
 
+   @Override
+   public String getFingerprint()
+   {
+      return fingerprint;
+   }
+
+   public GradleModelBuilder setFingerprint(String fingerprint)
+   {
+      this.fingerprint = fingerprint;
+      return this;
+   }
+
+   @Override
+   public boolean isNotModified()
+   {
+      return notModified;
+   }
+
+   public GradleModelBuilder setNotModified(boolean notModified)
+   {
+      this.notModified = notModified;
+      return this;
+   }
+
    private GradleDependency depWhichEqualsTo(List<GradleDependency> deps, GradleDependency dependency)
    {
       GradleDependencyBuilder builder = GradleDependencyBuilder.create(dependency);
@@ -544,6 +572,7 @@ public class GradleModelBuilder implements GradleModel, Serializable
                + effectiveManagedDependencies + ", plugins=" + plugins
                + ", effectivePlugins=" + effectivePlugins + ", repositories=" + repositories
                + ", effectiveRepositories=" + effectiveRepositories + ", properties=" + properties
-               + ", effectiveProperties=" + effectiveProperties + ", effectiveSourceSets=" + effectiveSourceSets + "]";
+               + ", effectiveProperties=" + effectiveProperties + ", effectiveSourceSets=" + effectiveSourceSets
+               + ", fingerprint=" + fingerprint + ", notModified=" + notModified + "]";
    }
 }
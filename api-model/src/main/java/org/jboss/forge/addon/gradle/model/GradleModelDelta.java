@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.model;
+
+import java.util.List;
+
+/**
+ * Describes changes of the effective model between two versions identified by their fingerprints. Changed and added
+ * entries of effective lists are carried by {@link #getChanges()}, removed entries are referenced only by their keys.
+ * Delta against an unknown base model (with empty base fingerprint) carries the whole effective model.
+ *
+ * @see GradleModelDeltaBuilder
+ *
+ * @author Adam Wyłuda
+ */
+public interface GradleModelDelta
+{
+   /**
+    * Returns fingerprint of the model to which this delta applies, or empty string if it applies to an empty model.
+    */
+   String getBaseFingerprint();
+
+   /**
+    * Returns fingerprint of the model which is the result of applying this delta.
+    */
+   String getFingerprint();
+
+   /**
+    * Returns model with all properties of the new model and only those effective list entries which were added or
+    * changed.
+    */
+   GradleModel getChanges();
+
+   /**
+    * Returns names of removed effective tasks.
+    */
+   List<String> getRemovedEffectiveTasks();
+
+   /**
+    * Returns keys of removed effective dependencies.
+    *
+    * @see GradleModelDeltaBuilder#dependencyKey(GradleDependency)
+    */
+   List<String> getRemovedEffectiveDependencies();
+
+   /**
+    * Returns keys of removed effective managed dependencies.
+    *
+    * @see GradleModelDeltaBuilder#dependencyKey(GradleDependency)
+    */
+   List<String> getRemovedEffectiveManagedDependencies();
+
+   /**
+    * Returns classes of removed effective plugins.
+    */
+   List<String> getRemovedEffectivePlugins();
+
+   /**
+    * Returns URLs of removed effective repositories.
+    */
+   List<String> getRemovedEffectiveRepositories();
+
+   /**
+    * Returns names of removed effective properties.
+    */
+   List<String> getRemovedEffectiveProperties();
+
+   /**
+    * Returns names of removed effective source sets.
+    */
+   List<String> getRemovedEffectiveSourceSets();
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default implementation of {@link GradleModelDelta}. Calculates delta between two models and applies it to the base
+ * model.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleModelDeltaBuilder implements GradleModelDelta, Serializable
+{
+   private String baseFingerprint = "";
+   private String fingerprint = "";
+   private GradleModel changes = GradleModelBuilder.create();
+   private List<String> removedEffectiveTasks = new ArrayList<String>();
+   private List<String> removedEffectiveDependencies = new ArrayList<String>();
+   private List<String> removedEffectiveManagedDependencies = new ArrayList<String>();
+   private List<String> removedEffectivePlugins = new ArrayList<String>();
+   private List<String> removedEffectiveRepositories = new ArrayList<String>();
+   private List<String> removedEffectiveProperties = new ArrayList<String>();
+   private List<String> removedEffectiveSourceSets = new ArrayList<String>();
+
+   private GradleModelDeltaBuilder()
+   {
+   }
+
+   public static GradleModelDeltaBuilder create()
+   {
+      return new GradleModelDeltaBuilder();
+   }
+
+   /**
+    * Creates delta which transforms base model into given model. If base model is null then delta carries the whole
+    * effective model.
+    */
+   public static GradleModelDeltaBuilder create(GradleModel base, GradleModel model)
+   {
+      GradleModelDeltaBuilder builder = new GradleModelDeltaBuilder();
+      if (base == null)
+      {
+         base = GradleModelBuilder.create();
+      }
+      else
+      {
+         builder.baseFingerprint = base.getFingerprint();
+      }
+      builder.fingerprint = model.getFingerprint();
+
+      GradleModelBuilder changes = GradleModelBuilder.create(model)
+               .setTasks(new ArrayList<GradleTask>())
+               .setDependencies(new ArrayList<GradleDependency>())
+               .setManagedDependencies(new ArrayList<GradleDependency>())
+               .setPlugins(new ArrayList<GradlePlugin>())
+               .setRepositories(new ArrayList<GradleRepository>())
+               .setProperties(new HashMap<String, String>())
+               .setNotModified(false);
+
+      changes.setEffectiveTasks(TASKS.changed(base.getEffectiveTasks(), model.getEffectiveTasks()));
+      builder.removedEffectiveTasks = TASKS.removed(base.getEffectiveTasks(), model.getEffectiveTasks());
+
+      changes.setEffectiveDependencies(
+               DEPENDENCIES.changed(base.getEffectiveDependencies(), model.getEffectiveDependencies()));
+      builder.removedEffectiveDependencies =
+               DEPENDENCIES.removed(base.getEffectiveDependencies(), model.getEffectiveDependencies());
+
+      changes.setEffectiveManagedDependencies(
+               DEPENDENCIES.changed(base.getEffectiveManagedDependencies(), model.getEffectiveManagedDependencies()));
+      builder.removedEffectiveManagedDependencies =
+               DEPENDENCIES.removed(base.getEffectiveManagedDependencies(), model.getEffectiveManagedDependencies());
+
+      changes.setEffectivePlugins(PLUGINS.changed(base.getEffectivePlugins(), model.getEffectivePlugins()));
+      builder.removedEffectivePlugins = PLUGINS.removed(base.getEffectivePlugins(), model.getEffectivePlugins());
+
+      changes.setEffectiveRepositories(
+               REPOSITORIES.changed(base.getEffectiveRepositories(), model.getEffectiveRepositories()));
+      builder.removedEffectiveRepositories =
+               REPOSITORIES.removed(base.getEffectiveRepositories(), model.getEffectiveRepositories());
+
+      changes.setEffectiveSourceSets(
+               SOURCE_SETS.changed(base.getEffectiveSourceSets(), model.getEffectiveSourceSets()));
+      builder.removedEffectiveSourceSets =
+               SOURCE_SETS.removed(base.getEffectiveSourceSets(), model.getEffectiveSourceSets());
+
+      Map<String, String> changedProperties = new HashMap<String, String>();
+      for (Map.Entry<String, String> entry : model.getEffectiveProperties().entrySet())
+      {
+         if (!Strings.compare(entry.getValue(), base.getEffectiveProperties().get(entry.getKey())))
+         {
+            changedProperties.put(entry.getKey(), entry.getValue());
+         }
+      }
+      changes.setEffectiveProperties(changedProperties);
+      for (String name : base.getEffectiveProperties().keySet())
+      {
+         if (!model.getEffectiveProperties().containsKey(name))
+         {
+            builder.removedEffectiveProperties.add(name);
+         }
+      }
+
+      builder.changes = changes;
+      return builder;
+   }
+
+   /**
+    * Applies delta to the base model. Delta with the same base fingerprint and fingerprint means that model wasn't
+    * modified, so the result is a copy of base model.
+    *
+    * @throws IllegalArgumentException If delta doesn't apply to given base model.
+    */
+   public static GradleModelBuilder apply(GradleModel base, GradleModelDelta delta)
+   {
+      if (Strings.isNullOrEmpty(delta.getBaseFingerprint()))
+      {
+         base = GradleModelBuilder.create();
+      }
+      else if (base == null || !delta.getBaseFingerprint().equals(base.getFingerprint()))
+      {
+         throw new IllegalArgumentException("Delta doesn't apply to model with fingerprint "
+                  + (base != null ? base.getFingerprint() : null));
+      }
+      else if (delta.getBaseFingerprint().equals(delta.getFingerprint()))
+      {
+         return GradleModelBuilder.create(base).setNotModified(false);
+      }
+
+      GradleModel changes = delta.getChanges();
+      GradleModelBuilder model = GradleModelBuilder.create(changes)
+               .setTasks(GradleTaskBuilder.deepCopy(base.getTasks()))
+               .setDependencies(GradleDependencyBuilder.deepCopy(base.getDependencies()))
+               .setManagedDependencies(GradleDependencyBuilder.deepCopy(base.getManagedDependencies()))
+               .setPlugins(GradlePluginBuilder.deepCopy(base.getPlugins()))
+               .setRepositories(GradleRepositoryBuilder.deepCopy(base.getRepositories()))
+               .setProperties(new HashMap<String, String>(base.getProperties()))
+               .setFingerprint(delta.getFingerprint())
+               .setNotModified(false);
+
+      model.setEffectiveTasks(GradleTaskBuilder.deepCopy(TASKS.apply(
+               base.getEffectiveTasks(), changes.getEffectiveTasks(), delta.getRemovedEffectiveTasks())));
+      model.setEffectiveDependencies(GradleDependencyBuilder.deepCopy(DEPENDENCIES.apply(
+               base.getEffectiveDependencies(), changes.getEffectiveDependencies(),
+               delta.getRemovedEffectiveDependencies())));
+      model.setEffectiveManagedDependencies(GradleDependencyBuilder.deepCopy(DEPENDENCIES.apply(
+               base.getEffectiveManagedDependencies(), changes.getEffectiveManagedDependencies(),
+               delta.getRemovedEffectiveManagedDependencies())));
+      model.setEffectivePlugins(GradlePluginBuilder.deepCopy(PLUGINS.apply(
+               base.getEffectivePlugins(), changes.getEffectivePlugins(), delta.getRemovedEffectivePlugins())));
+      model.setEffectiveRepositories(GradleRepositoryBuilder.deepCopy(REPOSITORIES.apply(
+               base.getEffectiveRepositories(), changes.getEffectiveRepositories(),
+               delta.getRemovedEffectiveRepositories())));
+      model.setEffectiveSourceSets(GradleSourceSetBuilder.deepCopy(SOURCE_SETS.apply(
+               base.getEffectiveSourceSets(), changes.getEffectiveSourceSets(),
+               delta.getRemovedEffectiveSourceSets())));
+
+      Map<String, String> properties = new HashMap<String, String>(base.getEffectiveProperties());
+      properties.keySet().removeAll(delta.getRemovedEffectiveProperties());
+      properties.putAll(changes.getEffectiveProperties());
+      model.setEffectiveProperties(properties);
+
+      return model;
+   }
+
+   /**
+    * Returns key which identifies dependency in the delta. Dependencies with the same key are considered the same
+    * dependency, possibly in other version.
+    */
+   public static String dependencyKey(GradleDependency dep)
+   {
+      return String.format("%s:%s:%s:%s@%s", dep.getConfigurationName(), dep.getGroup(), dep.getName(),
+               dep.getClassifier(), dep.getPackaging());
+   }
+
+   @Override
+   public String getBaseFingerprint()
+   {
+      return baseFingerprint;
+   }
+
+   public GradleModelDeltaBuilder setBaseFingerprint(String baseFingerprint)
+   {
+      this.baseFingerprint = baseFingerprint;
+      return this;
+   }
+
+   @Override
+   public String getFingerprint()
+   {
+      return fingerprint;
+   }
+
+   public GradleModelDeltaBuilder setFingerprint(String fingerprint)
+   {
+      this.fingerprint = fingerprint;
+      return this;
+   }
+
+   @Override
+   public GradleModel getChanges()
+   {
+      return changes;
+   }
+
+   public GradleModelDeltaBuilder setChanges(GradleModel changes)
+   {
+      this.changes = changes;
+      return this;
+   }
+
+   @Override
+   public List<String> getRemovedEffectiveTasks()
+   {
+      return removedEffectiveTasks;
+   }
+
+   public GradleModelDeltaBuilder setRemovedEffectiveTasks(List<String> removedEffectiveTasks)
+   {
+      this.removedEffectiveTasks = removedEffectiveTasks;
+      return this;
+   }
+
+   @Override
+   public List<String> getRemovedEffectiveDependencies()
+   {
+      return removedEffectiveDependencies;
+   }
+
+   public GradleModelDeltaBuilder setRemovedEffectiveDependencies(List<String> removedEffectiveDependencies)
+   {
+      this.removedEffectiveDependencies = removedEffectiveDependencies;
+      return this;
+   }
+
+   @Override
+   public List<String> getRemovedEffectiveManagedDependencies()
+   {
+      return removedEffectiveManagedDependencies;
+   }
+
+   public GradleModelDeltaBuilder setRemovedEffectiveManagedDependencies(
+            List<String> removedEffectiveManagedDependencies)
+   {
+      this.removedEffectiveManagedDependencies = removedEffectiveManagedDependencies;
+      return this;
+   }
+
+   @Override
+   public List<String> getRemovedEffectivePlugins()
+   {
+      return removedEffectivePlugins;
+   }
+
+   public GradleModelDeltaBuilder setRemovedEffectivePlugins(List<String> removedEffectivePlugins)
+   {
+      this.removedEffectivePlugins = removedEffectivePlugins;
+      return this;
+   }
+
+   @Override
+   public List<String> getRemovedEffectiveRepositories()
+   {
+      return removedEffectiveRepositories;
+   }
+
+   public GradleModelDeltaBuilder setRemovedEffectiveRepositories(List<String> removedEffectiveRepositories)
+   {
+      this.removedEffectiveRepositories = removedEffectiveRepositories;
+      return this;
+   }
+
+   @Override
+   public List<String> getRemovedEffectiveProperties()
+   {
+      return removedEffectiveProperties;
+   }
+
+   public GradleModelDeltaBuilder setRemovedEffectiveProperties(List<String> removedEffectiveProperties)
+   {
+      this.removedEffectiveProperties = removedEffectiveProperties;
+      return this;
+   }
+
+   @Override
+   public List<String> getRemovedEffectiveSourceSets()
+   {
+      return removedEffectiveSourceSets;
+   }
+
+   public GradleModelDeltaBuilder setRemovedEffectiveSourceSets(List<String> removedEffectiveSourceSets)
+   {
+      this.removedEffectiveSourceSets = removedEffectiveSourceSets;
+      return this;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "GradleModelDeltaBuilder [baseFingerprint=" + baseFingerprint + ", fingerprint=" + fingerprint
+               + ", changes=" + changes + ", removedEffectiveTasks=" + removedEffectiveTasks
+               + ", removedEffectiveDependencies=" + removedEffectiveDependencies
+               + ", removedEffectiveManagedDependencies=" + removedEffectiveManagedDependencies
+               + ", removedEffectivePlugins=" + removedEffectivePlugins + ", removedEffectiveRepositories="
+               + removedEffectiveRepositories + ", removedEffectiveProperties=" + removedEffectiveProperties
+               + ", removedEffectiveSourceSets=" + removedEffectiveSourceSets + "]";
+   }
+
+   /**
+    * Calculates and applies changes of a list of model entries identified by their keys.
+    */
+   private abstract static class Section<T>
+   {
+      abstract String key(T entry);
+
+      abstract boolean same(T entry, T other);
+
+      List<T> changed(List<T> base, List<T> model)
+      {
+         Map<String, T> baseEntries = index(base);
+         List<T> changed = new ArrayList<T>();
+         for (T entry : model)
+         {
+            T baseEntry = baseEntries.get(key(entry));
+            if (baseEntry == null || !same(baseEntry, entry))
+            {
+               changed.add(entry);
+            }
+         }
+         return changed;
+      }
+
+      List<String> removed(List<T> base, List<T> model)
+      {
+         Map<String, T> entries = index(model);
+         List<String> removed = new ArrayList<String>();
+         for (T baseEntry : base)
+         {
+            if (!entries.containsKey(key(baseEntry)))
+            {
+               removed.add(key(baseEntry));
+            }
+         }
+         return removed;
+      }
+
+      List<T> apply(List<T> base, List<T> changed, List<String> removed)
+      {
+         // Changed entries keep their position, added ones are appended
+         Map<String, T> entries = index(base);
+         entries.keySet().removeAll(removed);
+         for (T entry : changed)
+         {
+            entries.put(key(entry), entry);
+         }
+         return new ArrayList<T>(entries.values());
+      }
+
+      private Map<String, T> index(List<T> list)
+      {
+         Map<String, T> map = new LinkedHashMap<String, T>();
+         for (T entry : list)
+         {
+            map.put(key(entry), entry);
+         }
+         return map;
+      }
+   }
+
+   private static final Section<GradleTask> TASKS = new Section<GradleTask>()
+   {
+      @Override
+      String key(GradleTask task)
+      {
+         return task.getName();
+      }
+
+      @Override
+      boolean same(GradleTask task, GradleTask other)
+      {
+         return Strings.compare(task.getType(), other.getType())
+                  && taskNames(task.getDependsOn()).equals(taskNames(other.getDependsOn()))
+                  && task.getInputFiles().equals(other.getInputFiles())
+                  && task.getOutputFiles().equals(other.getOutputFiles());
+      }
+
+      private List<String> taskNames(List<GradleTask> tasks)
+      {
+         List<String> names = new ArrayList<String>();
+         for (GradleTask task : tasks)
+         {
+            names.add(task.getName());
+         }
+         return names;
+      }
+   };
+
+   private static final Section<GradleDependency> DEPENDENCIES = new Section<GradleDependency>()
+   {
+      @Override
+      String key(GradleDependency dep)
+      {
+         return dependencyKey(dep);
+      }
+
+      @Override
+      boolean same(GradleDependency dep, GradleDependency other)
+      {
+         return Strings.compare(dep.getVersion(), other.getVersion());
+      }
+   };
+
+   private static final Section<GradlePlugin> PLUGINS = new Section<GradlePlugin>()
+   {
+      @Override
+      String key(GradlePlugin plugin)
+      {
+         return plugin.getClazz();
+      }
+
+      @Override
+      boolean same(GradlePlugin plugin, GradlePlugin other)
+      {
+         return true;
+      }
+   };
+
+   private static final Section<GradleRepository> REPOSITORIES = new Section<GradleRepository>()
+   {
+      @Override
+      String key(GradleRepository repo)
+      {
+         return repo.getUrl();
+      }
+
+      @Override
+      boolean same(GradleRepository repo, GradleRepository other)
+      {
+         return true;
+      }
+   };
+
+   private static final Section<GradleSourceSet> SOURCE_SETS = new Section<GradleSourceSet>()
+   {
+      @Override
+      String key(GradleSourceSet sourceSet)
+      {
+         return sourceSet.getName();
+      }
+
+      @Override
+      boolean same(GradleSourceSet sourceSet, GradleSourceSet other)
+      {
+         return paths(sourceSet.getJavaDirectories()).equals(paths(other.getJavaDirectories()))
+                  && paths(sourceSet.getResourceDirectories()).equals(paths(other.getResourceDirectories()))
+                  && sourceSet.getCompileClasspath().equals(other.getCompileClasspath())
+                  && sourceSet.getRuntimeClasspath().equals(other.getRuntimeClasspath());
+      }
+
+      private List<String> paths(List<GradleSourceDirectory> dirs)
+      {
+         List<String> paths = new ArrayList<String>();
+         for (GradleSourceDirectory dir : dirs)
+         {
+            paths.add(dir.getPath());
+         }
+         return paths;
+      }
+   };
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.model;
+
+import java.util.List;
+
+/**
+ * Aggregates effective models of all projects of multi-project build.
+ *
+ * @see GradleMultiProjectModelBuilder
+ *
+ * @author Adam Wyłuda
+ */
+public interface GradleMultiProjectModel
+{
+   /**
+    * Returns effective models of all projects in the build, in the same order as Gradle lists them, starting with
+    * the root project.
+    */
+   List<GradleModel> getProjectModels();
+}
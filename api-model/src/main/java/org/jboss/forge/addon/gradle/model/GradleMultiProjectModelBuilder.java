@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Default implementation of {@link GradleMultiProjectModel}.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleMultiProjectModelBuilder implements GradleMultiProjectModel, Serializable
+{
+   private List<GradleModel> projectModels = new ArrayList<GradleModel>();
+
+   private GradleMultiProjectModelBuilder()
+   {
+   }
+
+   public static GradleMultiProjectModelBuilder create()
+   {
+      return new GradleMultiProjectModelBuilder();
+   }
+
+   @Override
+   public List<GradleModel> getProjectModels()
+   {
+      return projectModels;
+   }
+
+   public GradleMultiProjectModelBuilder setProjectModels(List<GradleModel> projectModels)
+   {
+      this.projectModels = projectModels;
+      return this;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "GradleMultiProjectModelBuilder [projectModels=" + projectModels + "]";
+   }
+}
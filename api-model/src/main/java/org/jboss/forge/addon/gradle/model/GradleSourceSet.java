@@ -31,4 +31,14 @@ public interface GradleSourceSet
     * Returns list of resource source directories of the source set. 
     */
    List<GradleSourceDirectory> getResourceDirectories();
+
+   /**
+    * Returns absolute paths of the resolved compile classpath of the source set.
+    */
+   List<String> getCompileClasspath();
+
+   /**
+    * Returns absolute paths of the resolved runtime classpath of the source set.
+    */
+   List<String> getRuntimeClasspath();
 }
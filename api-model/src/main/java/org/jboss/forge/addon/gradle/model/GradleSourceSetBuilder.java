@@ -23,6 +23,8 @@ public class GradleSourceSetBuilder implements GradleSourceSet, Serializable
    private String name = "";
    private List<GradleSourceDirectory> javaDirs = new ArrayList<GradleSourceDirectory>();
    private List<GradleSourceDirectory> resourceDirs = new ArrayList<GradleSourceDirectory>();
+   private List<String> compileClasspath = new ArrayList<String>();
+   private List<String> runtimeClasspath = new ArrayList<String>();
    
    private GradleSourceSetBuilder()
    {
@@ -43,6 +45,8 @@ public class GradleSourceSetBuilder implements GradleSourceSet, Serializable
       builder.name = sourceSet.getName();
       builder.javaDirs = GradleSourceDirectoryBuilder.deepCopy(sourceSet.getJavaDirectories());
       builder.resourceDirs = GradleSourceDirectoryBuilder.deepCopy(sourceSet.getResourceDirectories());
+      builder.compileClasspath = new ArrayList<String>(sourceSet.getCompileClasspath());
+      builder.runtimeClasspath = new ArrayList<String>(sourceSet.getRuntimeClasspath());
       
       return builder;
    }
@@ -98,9 +102,34 @@ public class GradleSourceSetBuilder implements GradleSourceSet, Serializable
       return this;
    }
 
+   @Override
+   public List<String> getCompileClasspath()
+   {
+      return Collections.unmodifiableList(compileClasspath);
+   }
+
+   public GradleSourceSetBuilder setCompileClasspath(List<String> classpath)
+   {
+      this.compileClasspath = classpath;
+      return this;
+   }
+
+   @Override
+   public List<String> getRuntimeClasspath()
+   {
+      return Collections.unmodifiableList(runtimeClasspath);
+   }
+
+   public GradleSourceSetBuilder setRuntimeClasspath(List<String> classpath)
+   {
+      this.runtimeClasspath = classpath;
+      return this;
+   }
+
    @Override
    public String toString()
    {
-      return "GradleSourceSetBuilder [name=" + name + ", javaDirs=" + javaDirs + ", resourceDirs=" + resourceDirs + "]";
+      return "GradleSourceSetBuilder [name=" + name + ", javaDirs=" + javaDirs + ", resourceDirs=" + resourceDirs
+               + ", compileClasspath=" + compileClasspath + ", runtimeClasspath=" + runtimeClasspath + "]";
    }
 }
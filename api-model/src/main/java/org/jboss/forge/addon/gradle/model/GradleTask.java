@@ -36,4 +36,15 @@ public interface GradleTask
     * Returns type of the task. 
     */
    String getType();
+
+   /**
+    * Returns absolute paths of the files and directories declared as task inputs. Files under source or output
+    * directories of source sets are represented by these directories.
+    */
+   List<String> getInputFiles();
+
+   /**
+    * Returns absolute paths of the files and directories declared as task outputs, represented like inputs.
+    */
+   List<String> getOutputFiles();
 }
@@ -23,6 +23,8 @@ public class GradleTaskBuilder implements GradleTask, Serializable
    private List<GradleTask> dependsOn = new ArrayList<GradleTask>();
    private String type = "";
    private String code = "";
+   private List<String> inputFiles = new ArrayList<String>();
+   private List<String> outputFiles = new ArrayList<String>();
 
    private GradleTaskBuilder()
    {
@@ -41,9 +43,11 @@ public class GradleTaskBuilder implements GradleTask, Serializable
       GradleTaskBuilder builder = new GradleTaskBuilder();
       
       builder.name = task.getName();
-      builder.dependsOn = task.getDependsOn();
+      builder.dependsOn = deepCopy(task.getDependsOn());
       builder.type = task.getType();
       builder.code = task.getCode();
+      builder.inputFiles = new ArrayList<String>(task.getInputFiles());
+      builder.outputFiles = new ArrayList<String>(task.getOutputFiles());
       
       return builder;
    }
@@ -116,6 +120,30 @@ public class GradleTaskBuilder implements GradleTask, Serializable
       this.code = code;
       return this;
    }
+
+   @Override
+   public List<String> getInputFiles()
+   {
+      return inputFiles;
+   }
+
+   public GradleTaskBuilder setInputFiles(List<String> inputFiles)
+   {
+      this.inputFiles = inputFiles;
+      return this;
+   }
+
+   @Override
+   public List<String> getOutputFiles()
+   {
+      return outputFiles;
+   }
+
+   public GradleTaskBuilder setOutputFiles(List<String> outputFiles)
+   {
+      this.outputFiles = outputFiles;
+      return this;
+   }
    
    @Override
    public String toString()
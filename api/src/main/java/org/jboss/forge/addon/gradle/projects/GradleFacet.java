@@ -6,8 +6,11 @@
  */
 package org.jboss.forge.addon.gradle.projects;
 
+import java.util.concurrent.TimeUnit;
+
 import org.jboss.forge.addon.gradle.model.GradleModel;
 import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModel;
 import org.jboss.forge.addon.projects.ProvidedProjectFacet;
 import org.jboss.forge.addon.resource.FileResource;
 
@@ -19,9 +22,10 @@ import org.jboss.forge.addon.resource.FileResource;
  * Example of usage (adding a dependency):
  * 
  * <pre>
- * GradleModelBuilder builder = GradleModelBuilder.create(gradleFacet.getModel());
+ * GradleModelSnapshot base = gradleFacet.getModelSnapshot();
+ * GradleModelBuilder builder = GradleModelBuilder.create(base.getModel());
  * builder.addDependency(GradleDependencyBuilder.create(&quot;compile&quot;, &quot;org.x:y:1.0&quot;));
- * gradleFacet.setModel(builder);
+ * gradleFacet.setModel(base, builder);
  * </pre>
  * 
  * @see GradleModel
@@ -38,15 +42,41 @@ public interface GradleFacet extends ProvidedProjectFacet
    boolean executeTask(String task, String... arguments);
 
    /**
-    * Returns evaluated Gradle project model.
+    * Returns evaluated Gradle project model. The model is read-only, changes are made to its copy.
     */
    GradleModel getModel();
 
    /**
-    * Merges all changes with the old model and persists them to the build script.
+    * Returns evaluated Gradle project model together with its version, which is a base for changes committed by
+    * {@link #setModel(GradleModelSnapshot, GradleModel)}.
+    */
+   GradleModelSnapshot getModelSnapshot();
+
+   /**
+    * Returns last known model right away, even if it's outdated. If the model is older than given limit, or build
+    * inputs changed since it was evaluated, then it's refreshed in background. Waits for the model only if it wasn't
+    * loaded yet. Useful for commands which only display information about the project.
+    */
+   GradleModelSnapshot getModel(long maxAge, TimeUnit unit);
+
+   /**
+    * Merges all changes with the current model and persists them to the build script. Model must be derived from the
+    * current model, changes committed since it was read are reverted otherwise.
     */
    void setModel(GradleModel model);
 
+   /**
+    * Merges changes between model of the base snapshot and given model with the current model, and persists them to
+    * the build script. Changes committed since the base was read are kept.
+    */
+   void setModel(GradleModelSnapshot base, GradleModel model);
+
+   /**
+    * Returns evaluated models of all projects of the build which this project belongs to, followed by projects of the
+    * builds it includes by <i>includeBuild</i> (their models carry root project path of their own build).
+    */
+   GradleMultiProjectModel getMultiProjectModel();
+
    /**
     * Returns file resource pointing to the build.gradle script of the project.
     */
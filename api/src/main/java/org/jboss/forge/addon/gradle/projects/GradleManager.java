@@ -7,6 +7,11 @@
 package org.jboss.forge.addon.gradle.projects;
 
 import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelDelta;
+import org.jboss.forge.addon.gradle.model.GradleModelDeltaBuilder;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModel;
+
+import java.util.Map;
 
 /**
  * Manages Gradle build system.
@@ -25,4 +30,36 @@ public interface GradleManager
     * which applies Forge plugin to project.
     */
    GradleModel buildModel(String directory, String forgeScriptLocation, String forgePluginVersion);
+
+   /**
+    * Builds {@link GradleModel} for given directory, like {@link #buildModel(String, String, String)}. If the model
+    * fingerprint is the same as the fingerprint of current build inputs then returned model is only a marker for which
+    * {@link GradleModel#isNotModified()} returns true.
+    */
+   GradleModel buildModel(String directory, String forgeScriptLocation, String forgePluginVersion,
+            String modelFingerprint);
+
+   /**
+    * Builds {@link GradleModelDelta} which transforms the model with given fingerprint into current model. If Gradle
+    * doesn't know such model then delta contains the whole model.
+    *
+    * @see GradleModelDeltaBuilder#apply(GradleModel, GradleModelDelta)
+    */
+   GradleModelDelta buildModelDelta(String directory, String forgeScriptLocation, String forgePluginVersion,
+            String modelFingerprint);
+
+   /**
+    * Builds {@link GradleMultiProjectModel} with effective models of all projects of the build which contains given
+    * directory.
+    */
+   GradleMultiProjectModel buildMultiProjectModel(String directory, String forgeScriptLocation,
+            String forgePluginVersion);
+
+   /**
+    * Builds {@link GradleMultiProjectModel} of the build which contains given directory and of all builds included by
+    * <i>includeBuild</i> in its settings script (recursively). Models of the builds are fetched in parallel and
+    * returned keyed by root directory of the build, in order of their discovery.
+    */
+   Map<String, GradleMultiProjectModel> buildCompositeModel(String directory, String forgeScriptLocation,
+            String forgePluginVersion);
 }
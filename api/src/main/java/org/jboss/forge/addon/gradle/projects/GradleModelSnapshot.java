@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.addon.gradle.model.GradleModel;
+
+/**
+ * Model known at some point in time, returned when slightly outdated model is good enough.
+ *
+ * @see GradleFacet#getModel(long, TimeUnit)
+ *
+ * @author Adam Wyłuda
+ */
+public final class GradleModelSnapshot
+{
+   private final GradleModel model;
+   private final long timestamp;
+   private final long version;
+
+   public GradleModelSnapshot(GradleModel model, long timestamp, long version)
+   {
+      this.model = model;
+      this.timestamp = timestamp;
+      this.version = version;
+   }
+
+   /**
+    * Returns the model.
+    */
+   public GradleModel getModel()
+   {
+      return model;
+   }
+
+   /**
+    * Returns time in milliseconds when the model was evaluated by Gradle.
+    */
+   public long getTimestamp()
+   {
+      return timestamp;
+   }
+
+   /**
+    * Returns version of the model. Each change committed through {@link GradleFacet#setModel(GradleModel)} and each
+    * reload increases the version. Changes made to the model of an older version are rebased onto the current one by
+    * {@link GradleFacet#setModel(GradleModelSnapshot, GradleModel)}.
+    */
+   public long getVersion()
+   {
+      return version;
+   }
+
+   /**
+    * Returns age of the model in given unit.
+    */
+   public long getAge(TimeUnit unit)
+   {
+      return unit.convert(Math.max(0, System.currentTimeMillis() - timestamp), TimeUnit.MILLISECONDS);
+   }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.jboss.forge.addon.gradle.model.GradleBuildFingerprint;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleBuildFingerprintTest
+{
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private File rootDir;
+   private File projectDir;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      rootDir = folder.getRoot();
+      projectDir = new File(rootDir, "project");
+      write(new File(rootDir, "settings.gradle"), "include 'project'");
+      write(new File(projectDir, "build.gradle"), "apply plugin: 'java'");
+   }
+
+   @Test
+   public void testFingerprintIsStable()
+   {
+      assertEquals(GradleBuildFingerprint.calculate(projectDir, "1.0"),
+               GradleBuildFingerprint.calculate(projectDir, "1.0"));
+      assertNotEquals(GradleBuildFingerprint.calculate(projectDir, "1.0"),
+               GradleBuildFingerprint.calculate(projectDir, "2.0"));
+   }
+
+   @Test
+   public void testFingerprintCoversBuildInputs() throws IOException
+   {
+      String fingerprint = GradleBuildFingerprint.calculate(projectDir, "1.0");
+
+      write(new File(rootDir, "gradle.properties"), "org.gradle.parallel=true");
+      String withProperties = GradleBuildFingerprint.calculate(projectDir, "1.0");
+      assertNotEquals(fingerprint, withProperties);
+
+      write(new File(new File(rootDir, GradleBuildFingerprint.SCRIPTS_DIR), "versions.gradle"), "ext.v = '1.0'");
+      String withAppliedScript = GradleBuildFingerprint.calculate(projectDir, "1.0");
+      assertNotEquals(withProperties, withAppliedScript);
+
+      write(new File(rootDir, "other/build.gradle"), "apply plugin: 'war'");
+      String withOtherProject = GradleBuildFingerprint.calculate(projectDir, "1.0");
+      assertNotEquals(withAppliedScript, withOtherProject);
+
+      write(new File(rootDir, "buildSrc/src/main/groovy/Plugin.groovy"), "class Plugin {}");
+      String withBuildSrc = GradleBuildFingerprint.calculate(projectDir, "1.0");
+      assertNotEquals(withOtherProject, withBuildSrc);
+
+      write(new File(rootDir, "gradle/wrapper/gradle-wrapper.properties"), "distributionUrl=gradle-2.4-bin.zip");
+      String withWrapper = GradleBuildFingerprint.calculate(projectDir, "1.0");
+      assertNotEquals(withBuildSrc, withWrapper);
+
+      write(new File(projectDir, "src/main/java/Main.java"), "class Main {}");
+      write(new File(projectDir, "README"), "Not a build input");
+      write(new File(projectDir, "build/classes/Main.class"), "Output");
+      write(new File(rootDir, ".git/HEAD"), "Not a build input");
+      write(new File(rootDir, "nested/settings.gradle"), "// Separate build");
+      write(new File(rootDir, "nested/build.gradle"), "apply plugin: 'java'");
+      assertEquals(withWrapper, GradleBuildFingerprint.calculate(projectDir, "1.0"));
+   }
+
+   @Test
+   public void testFingerprintOfProjectsInBuild()
+   {
+      File otherProjectDir = new File(rootDir, "other");
+      String digest = GradleBuildFingerprint.digestBuildInputs(rootDir);
+      assertEquals(GradleBuildFingerprint.calculate(projectDir, "1.0"),
+               GradleBuildFingerprint.calculate(projectDir, "1.0", digest));
+      assertNotEquals(GradleBuildFingerprint.calculate(projectDir, "1.0", digest),
+               GradleBuildFingerprint.calculate(otherProjectDir, "1.0", digest));
+   }
+
+   @Test
+   public void testFindRootDir()
+   {
+      assertEquals(rootDir, GradleBuildFingerprint.findRootDir(projectDir));
+      assertEquals(rootDir, GradleBuildFingerprint.findRootDir(rootDir));
+   }
+
+   private void write(File file, String contents) throws IOException
+   {
+      file.getParentFile().mkdirs();
+      try (FileOutputStream output = new FileOutputStream(file))
+      {
+         output.write(contents.getBytes("UTF-8"));
+      }
+   }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.forge.addon.gradle.model.GradleDependency;
+import org.jboss.forge.addon.gradle.model.GradleDependencyBuilder;
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.model.GradleModelDelta;
+import org.jboss.forge.addon.gradle.model.GradleModelDeltaBuilder;
+import org.jboss.forge.addon.gradle.model.GradlePlugin;
+import org.jboss.forge.addon.gradle.model.GradlePluginBuilder;
+import org.jboss.forge.addon.gradle.model.GradlePluginType;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleModelDeltaBuilderTest
+{
+   @Test
+   public void testDeltaContainsOnlyChangedEntries()
+   {
+      GradleModel base = model("1",
+               deps("compile 'a:a:1.0'", "compile 'b:b:1.0'", "testCompile 'c:c:1.0'"),
+               plugins(GradlePluginType.JAVA));
+      GradleModel model = model("2",
+               deps("compile 'a:a:1.0'", "compile 'b:b:2.0'", "compile 'd:d:1.0'"),
+               plugins(GradlePluginType.JAVA, GradlePluginType.WAR));
+
+      GradleModelDelta delta = GradleModelDeltaBuilder.create(base, model);
+
+      assertEquals("1", delta.getBaseFingerprint());
+      assertEquals("2", delta.getFingerprint());
+      List<GradleDependency> changedDeps = delta.getChanges().getEffectiveDependencies();
+      assertEquals(2, changedDeps.size());
+      assertEquals("2.0", changedDeps.get(0).getVersion());
+      assertEquals("d", changedDeps.get(1).getName());
+      assertEquals(Arrays.asList("testCompile:c:c:@jar"), delta.getRemovedEffectiveDependencies());
+      assertEquals(1, delta.getChanges().getEffectivePlugins().size());
+      assertEquals(GradlePluginType.WAR.getClazz(), delta.getChanges().getEffectivePlugins().get(0).getClazz());
+      assertTrue(delta.getRemovedEffectivePlugins().isEmpty());
+   }
+
+   @Test
+   public void testApplyDelta()
+   {
+      GradleModel base = model("1",
+               deps("compile 'a:a:1.0'", "compile 'b:b:1.0'", "testCompile 'c:c:1.0'"),
+               plugins(GradlePluginType.JAVA, GradlePluginType.WAR));
+      GradleModel model = model("2",
+               deps("compile 'a:a:1.0'", "compile 'b:b:2.0'", "compile 'd:d:1.0'"),
+               plugins(GradlePluginType.JAVA));
+
+      GradleModel result = GradleModelDeltaBuilder.apply(base, GradleModelDeltaBuilder.create(base, model));
+
+      assertEquals("2", result.getFingerprint());
+      assertEquals("name2", result.getName());
+      assertEquals(3, result.getEffectiveDependencies().size());
+      assertTrue(result.hasEffectiveDependency(GradleDependencyBuilder.create("compile", "a:a:1.0")));
+      assertEquals("2.0", result.getEffectiveDependencies().get(1).getVersion());
+      assertTrue(result.hasEffectiveDependency(GradleDependencyBuilder.create("compile", "d:d:1.0")));
+      assertFalse(result.hasEffectiveDependency(GradleDependencyBuilder.create("testCompile", "c:c:1.0")));
+      assertEquals(1, result.getEffectivePlugins().size());
+      assertEquals("value2", result.getEffectiveProperties().get("changed"));
+      assertFalse(result.getEffectiveProperties().containsKey("removed1"));
+      assertEquals("value2", result.getEffectiveProperties().get("added2"));
+   }
+
+   @Test
+   public void testApplyDeltaWithoutBase()
+   {
+      GradleModel model = model("2", deps("compile 'a:a:1.0'"), plugins(GradlePluginType.JAVA));
+
+      GradleModelDelta delta = GradleModelDeltaBuilder.create(null, model);
+      GradleModel result = GradleModelDeltaBuilder.apply(null, delta);
+
+      assertEquals("", delta.getBaseFingerprint());
+      assertEquals("2", result.getFingerprint());
+      assertEquals(1, result.getEffectiveDependencies().size());
+      assertEquals(1, result.getEffectivePlugins().size());
+   }
+
+   @Test
+   public void testApplyNotModifiedDelta()
+   {
+      GradleModel base = model("1", deps("compile 'a:a:1.0'"), plugins(GradlePluginType.JAVA));
+      GradleModelDelta delta = GradleModelDeltaBuilder.create().setBaseFingerprint("1").setFingerprint("1");
+
+      GradleModel result = GradleModelDeltaBuilder.apply(base, delta);
+
+      assertEquals("name1", result.getName());
+      assertEquals(1, result.getEffectiveDependencies().size());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testApplyDeltaToOtherModel()
+   {
+      GradleModel base = model("1", deps(), plugins());
+      GradleModel model = model("2", deps(), plugins());
+      GradleModel other = model("3", deps(), plugins());
+
+      GradleModelDeltaBuilder.apply(other, GradleModelDeltaBuilder.create(base, model));
+   }
+
+   private GradleModel model(String fingerprint, List<GradleDependency> deps, List<GradlePlugin> plugins)
+   {
+      Map<String, String> properties = new HashMap<String, String>();
+      properties.put("changed", "value" + fingerprint);
+      properties.put("removed" + fingerprint, "value" + fingerprint);
+      properties.put("added" + fingerprint, "value" + fingerprint);
+
+      return GradleModelBuilder.create()
+               .setName("name" + fingerprint)
+               .setFingerprint(fingerprint)
+               .setEffectiveDependencies(deps)
+               .setEffectivePlugins(plugins)
+               .setEffectiveProperties(properties);
+   }
+
+   private List<GradleDependency> deps(String... deps)
+   {
+      List<GradleDependency> list = new ArrayList<GradleDependency>();
+      for (String dep : deps)
+      {
+         String[] parts = dep.split(" ");
+         list.add(GradleDependencyBuilder.create(parts[0], parts[1].replace("'", "")));
+      }
+      return list;
+   }
+
+   private List<GradlePlugin> plugins(GradlePluginType... types)
+   {
+      List<GradlePlugin> list = new ArrayList<GradlePlugin>();
+      for (GradlePluginType type : types)
+      {
+         list.add(GradlePluginBuilder.create(type));
+      }
+      return list;
+   }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+
+import org.jboss.forge.addon.gradle.model.GradleBuildFingerprint;
+
+/**
+ * Watches Gradle scripts and gradle.properties in project and root project directories (and their <i>gradle</i>
+ * subdirectories), which are the most common build inputs of Gradle projects, and notifies listeners when they change.
+ * It's only a hint, other changes are detected by {@link GradleBuildFingerprint} when the model is loaded. Bursts of
+ * changes, like saving several scripts at once, result in a single notification. Listeners are notified on a
+ * background thread, one at a time.
+ *
+ * @author Adam Wyłuda
+ */
+@Singleton
+public class GradleBuildWatcher
+{
+   private static final Logger LOG = Logger.getLogger(GradleBuildWatcher.class.getName());
+
+   private static final long DEBOUNCE_MILLIS = 300;
+
+   /**
+    * Receives notifications about changed build inputs.
+    */
+   public interface Listener
+   {
+      void buildChanged();
+   }
+
+   // Watched directory -> project directories whose build inputs it contains
+   private final Map<Path, Set<File>> watchedDirs = new ConcurrentHashMap<>();
+   private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+   private final Map<File, Listener> listeners = new ConcurrentHashMap<>();
+   private final Map<File, ScheduledFuture<?>> pendingNotifications = new ConcurrentHashMap<>();
+
+   private WatchService watchService;
+   private ScheduledExecutorService scheduler;
+
+   /**
+    * Starts watching build inputs of the project in given directory. There is only one listener per project, so
+    * registering it again replaces previous listener.
+    */
+   public synchronized void register(File projectDir, Listener listener)
+   {
+      projectDir = projectDir.getAbsoluteFile();
+      listeners.put(projectDir, listener);
+      try
+      {
+         start();
+         File rootDir = GradleBuildFingerprint.findRootDir(projectDir);
+         watch(projectDir, projectDir);
+         watch(new File(projectDir, GradleBuildFingerprint.SCRIPTS_DIR), projectDir);
+         watch(rootDir, projectDir);
+         watch(new File(rootDir, GradleBuildFingerprint.SCRIPTS_DIR), projectDir);
+      }
+      catch (IOException e)
+      {
+         // Without watcher model is still refreshed when changed through the facet
+         LOG.log(Level.FINE, "Couldn't watch build inputs of " + projectDir, e);
+      }
+   }
+
+   /**
+    * Stops notifying given listener of the project in given directory, and stops watching directories which are not
+    * needed by other projects. Does nothing if the listener was replaced by another one in the meantime.
+    */
+   public synchronized void unregister(File projectDir, Listener listener)
+   {
+      projectDir = projectDir.getAbsoluteFile();
+      if (!listeners.remove(projectDir, listener))
+      {
+         return;
+      }
+      ScheduledFuture<?> pending = pendingNotifications.remove(projectDir);
+      if (pending != null)
+      {
+         pending.cancel(false);
+      }
+      for (Map.Entry<Path, Set<File>> entry : watchedDirs.entrySet())
+      {
+         Set<File> projects = entry.getValue();
+         projects.remove(projectDir);
+         if (projects.isEmpty())
+         {
+            watchedDirs.remove(entry.getKey());
+            WatchKey key = watchKeys.remove(entry.getKey());
+            if (key != null)
+            {
+               key.cancel();
+            }
+         }
+      }
+   }
+
+   /**
+    * Schedules notification of the listener, as if build inputs of the project changed. Useful when the change is
+    * known before watcher detects it, or when the watcher is not able to detect it at all.
+    */
+   public void notifyChanged(File projectDir)
+   {
+      scheduleNotification(projectDir.getAbsoluteFile());
+   }
+
+   @PreDestroy
+   public synchronized void stop()
+   {
+      if (watchService != null)
+      {
+         try
+         {
+            watchService.close();
+         }
+         catch (IOException e)
+         {
+            LOG.log(Level.FINE, "Couldn't close watch service", e);
+         }
+         scheduler.shutdownNow();
+         watchService = null;
+         scheduler = null;
+         watchedDirs.clear();
+         watchKeys.clear();
+      }
+   }
+
+   private void start() throws IOException
+   {
+      if (watchService != null)
+      {
+         return;
+      }
+      watchService = FileSystems.getDefault().newWatchService();
+      scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("Gradle build notifier"));
+      final WatchService service = watchService;
+      daemonThreadFactory("Gradle build watcher").newThread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            pollEvents(service);
+         }
+      }).start();
+   }
+
+   private void watch(File dir, File projectDir) throws IOException
+   {
+      if (!dir.isDirectory())
+      {
+         return;
+      }
+      Path path = dir.toPath();
+      Set<File> projects = watchedDirs.get(path);
+      if (projects == null)
+      {
+         watchKeys.put(path, path.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY));
+         projects = new CopyOnWriteArraySet<>();
+         watchedDirs.put(path, projects);
+      }
+      projects.add(projectDir);
+   }
+
+   private void pollEvents(WatchService service)
+   {
+      try
+      {
+         while (true)
+         {
+            WatchKey key = service.take();
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+               Path name = event.kind() == OVERFLOW ? null : (Path) event.context();
+               handleEvent(dir, name);
+            }
+            key.reset();
+         }
+      }
+      catch (InterruptedException | ClosedWatchServiceException e)
+      {
+         // Watcher stopped
+      }
+   }
+
+   private void handleEvent(Path dir, Path name)
+   {
+      Set<File> projects = watchedDirs.get(dir);
+      if (projects == null)
+      {
+         return;
+      }
+      if (name != null && name.toString().equals(GradleBuildFingerprint.SCRIPTS_DIR)
+               && dir.resolve(name).toFile().isDirectory())
+      {
+         // Scripts directory created after registration
+         for (File projectDir : projects)
+         {
+            Listener listener = listeners.get(projectDir);
+            if (listener != null)
+            {
+               register(projectDir, listener);
+            }
+         }
+      }
+      // Overflow means that events were lost, so any file could have changed
+      if (name == null || isBuildInput(name.toString()))
+      {
+         for (File projectDir : projects)
+         {
+            scheduleNotification(projectDir);
+         }
+      }
+   }
+
+   private static boolean isBuildInput(String fileName)
+   {
+      return fileName.endsWith(".gradle") || fileName.equals(GradleBuildFingerprint.GRADLE_PROPERTIES);
+   }
+
+   private synchronized void scheduleNotification(final File projectDir)
+   {
+      if (scheduler == null)
+      {
+         return;
+      }
+      ScheduledFuture<?> pending = pendingNotifications.get(projectDir);
+      if (pending != null)
+      {
+         pending.cancel(false);
+      }
+      pendingNotifications.put(projectDir, scheduler.schedule(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            pendingNotifications.remove(projectDir);
+            Listener listener = listeners.get(projectDir);
+            if (listener != null)
+            {
+               try
+               {
+                  listener.buildChanged();
+               }
+               catch (RuntimeException e)
+               {
+                  LOG.log(Level.WARNING, "Error while handling change of build in " + projectDir, e);
+               }
+            }
+         }
+      }, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS));
+   }
+
+   private static ThreadFactory daemonThreadFactory(final String name)
+   {
+      return new ThreadFactory()
+      {
+         @Override
+         public Thread newThread(Runnable runnable)
+         {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+         }
+      };
+   }
+}
@@ -6,11 +6,11 @@
  */
 package org.jboss.forge.addon.gradle.projects;
 
-import org.jboss.forge.addon.configuration.Configuration;
 import org.jboss.forge.addon.facets.AbstractFacet;
 import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModel;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModelBuilder;
 import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
-import org.jboss.forge.addon.gradle.projects.model.GradleModelLoadUtil;
 import org.jboss.forge.addon.gradle.projects.model.GradleModelMergeUtil;
 import org.jboss.forge.addon.projects.Project;
 import org.jboss.forge.addon.resource.FileResource;
@@ -18,11 +18,13 @@ import org.jboss.forge.addon.resource.Resource;
 import org.jboss.forge.addon.resource.ResourceFactory;
 import org.jboss.forge.addon.resource.WriteableResource;
 import org.jboss.forge.furnace.addons.Addon;
-import org.jboss.forge.furnace.util.OperatingSystemUtils;
-import org.jboss.forge.roaster.model.util.Strings;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Adam Wyłuda
@@ -36,20 +38,16 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
             "}\n";
    private static final String FORGE_OUTPUT_LIBRARY_LOCATION_CONF_KEY = "forgeOutputLibraryLocation";
 
-   private static final String FORGE_PLUGIN_SCRIPT_LOCATION_CONF_KEY = "forgePluginScriptLocation";
-   private static final String FORGE_PLUGIN_SCRIPT = "/forge-plugin.gradle";
-
    @Inject
    private GradleManager manager;
    @Inject
    private ResourceFactory resourceFactory;
    @Inject
-   private Configuration configuration;
-   @Inject
    private Addon addon;
-
-   // Cached model
-   private GradleModel model;
+   @Inject
+   private GradleInitScriptProvider initScriptProvider;
+   @Inject
+   private GradleModelStore modelStore;
 
    @Override
    public boolean install()
@@ -80,35 +78,67 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
    @Override
    public GradleModel getModel()
    {
-      if (this.model != null)
-      {
-         return this.model;
-      }
+      return modelStore.getModel(getProjectDir());
+   }
 
-      loadModel();
+   @Override
+   public GradleModelSnapshot getModelSnapshot()
+   {
+      return modelStore.getModelSnapshot(getProjectDir());
+   }
 
-      return this.model;
+   @Override
+   public GradleModelSnapshot getModel(long maxAge, TimeUnit unit)
+   {
+      return modelStore.getModel(getProjectDir(), maxAge, unit);
    }
 
    @Override
    public void setModel(GradleModel newModel)
    {
-      String oldSource = getBuildScriptResource().getContents();
-      String newSource = GradleModelMergeUtil.merge(oldSource, model, newModel);
-      getBuildScriptResource().setContents(newSource);
+      setModel(null, newModel);
+   }
 
-      // If we need to change model name then it must be done in settings.gradle
-      if (!this.model.getName().equals(newModel.getName()))
+   @Override
+   public void setModel(GradleModelSnapshot base, GradleModel newModel)
+   {
+      modelStore.commit(getProjectDir(), base, newModel, new GradleModelStore.ModelWriter()
       {
-         String settingsScript = getSettingsScriptResource().exists() ? getSettingsScriptResource().getContents() : "";
-         // Because setting project name in model also changes the project path
-         // we must take project path from old model
-         settingsScript = GradleSourceUtil.setProjectName(settingsScript, this.model.getProjectPath(),
-                  newModel.getName());
-         getSettingsScriptResource().setContents(settingsScript);
-      }
+         @Override
+         public String write(GradleModel model, GradleModel newModel)
+         {
+            String oldSource = getBuildScriptResource().getContents();
+            String newSource = GradleModelMergeUtil.merge(oldSource, model, newModel);
+            getBuildScriptResource().setContents(newSource);
+
+            // If we need to change model name then it must be done in settings.gradle
+            if (!model.getName().equals(newModel.getName()))
+            {
+               FileResource<?> settingsScriptResource = getSettingsScriptResource(model);
+               String settingsScript = settingsScriptResource.exists() ? settingsScriptResource.getContents() : "";
+               // Because setting project name in model also changes the project path
+               // we must take project path from old model
+               settingsScript = GradleSourceUtil.setProjectName(settingsScript, model.getProjectPath(),
+                        newModel.getName());
+               settingsScriptResource.setContents(settingsScript);
+            }
+            return newSource;
+         }
+      });
+   }
 
-      this.model = null;
+   @Override
+   public GradleMultiProjectModel getMultiProjectModel()
+   {
+      Map<String, GradleMultiProjectModel> buildModels = manager.buildCompositeModel(
+               getFaceted().getRoot().getFullyQualifiedName(), initScriptProvider.getInitScriptLocation(),
+               addon.getId().getVersion().toString());
+      List<GradleModel> projectModels = new ArrayList<GradleModel>();
+      for (GradleMultiProjectModel buildModel : buildModels.values())
+      {
+         projectModels.addAll(buildModel.getProjectModels());
+      }
+      return GradleMultiProjectModelBuilder.create().setProjectModels(projectModels);
    }
 
    @Override
@@ -117,12 +147,10 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
       return (FileResource<?>) getFaceted().getRoot().getChild("build.gradle");
    }
 
-   @SuppressWarnings("unchecked")
    @Override
    public FileResource<?> getSettingsScriptResource()
    {
-      return resourceFactory.create(FileResource.class, new File(
-               getModel().getRootProjectPath(), "settings.gradle"));
+      return getSettingsScriptResource(getModel());
    }
 
    @Override
@@ -150,29 +178,15 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
                GradleSourceUtil.checkForIncludeForgeLibrary(getBuildScriptResource().getContents());
    }
 
-   private void loadModel()
+   @SuppressWarnings("unchecked")
+   private FileResource<?> getSettingsScriptResource(GradleModel model)
    {
-      if (!isForgePluginScriptInstalled()) {
-         installForgePluginScript();
-      }
-
-      String projectPath = getFaceted().getRoot().getFullyQualifiedName();
-      String forgePluginScriptPath = configuration.getString(FORGE_PLUGIN_SCRIPT_LOCATION_CONF_KEY);
-      String forgePluginVersion = addon.getId().getVersion().toString();
-
-      this.model = manager.buildModel(projectPath, forgePluginScriptPath, forgePluginVersion);
-
-      // Read direct properties
-      String script = getBuildScriptResource().getContents();
-      this.model = GradleModelLoadUtil.load(this.model, script);
+      return resourceFactory.create(FileResource.class, new File(model.getRootProjectPath(), "settings.gradle"));
    }
 
-   private boolean isForgePluginScriptInstalled()
+   private File getProjectDir()
    {
-      String libLocation = configuration.getString(FORGE_PLUGIN_SCRIPT);
-
-      return !Strings.isNullOrEmpty(libLocation)
-               && resourceFactory.create(new File(libLocation)).exists();
+      return new File(getFaceted().getRoot().getFullyQualifiedName());
    }
 
    private Resource<?> installFileFromResources(Resource<?> targetDirectory, String targetFileName,
@@ -183,11 +197,4 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
 
       return forgeLib;
    }
-
-   private void installForgePluginScript() {
-      File temporaryDir = OperatingSystemUtils.createTempDir();
-      Resource<?> pluginScript = installFileFromResources(resourceFactory.create(temporaryDir),
-               FORGE_PLUGIN_SCRIPT, FORGE_PLUGIN_SCRIPT);
-      configuration.setProperty(FORGE_PLUGIN_SCRIPT_LOCATION_CONF_KEY, pluginScript.getFullyQualifiedName());
-   }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Scanner;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+import org.jboss.forge.furnace.util.OperatingSystemUtils;
+
+/**
+ * Provides init script which applies Forge plugin to the projects. The script refers to the plugin jar (and its
+ * dependencies) shipped with the addon as local files, so Gradle doesn't need to resolve the plugin from repository on
+ * every model fetch. The script is stored under a name derived from its contents, which makes its location stable
+ * between sessions and lets Gradle reuse the compiled script.
+ *
+ * @author Adam Wyłuda
+ */
+@Singleton
+public class GradleInitScriptProvider
+{
+   private static final Logger LOG = Logger.getLogger(GradleInitScriptProvider.class.getName());
+
+   private static final Charset UTF_8 = Charset.forName("UTF-8");
+   private static final String FORGE_PLUGIN_SCRIPT = "/forge-plugin.gradle";
+   private static final String FORGE_PLUGIN_DESCRIPTOR = "META-INF/gradle-plugins/forge-plugin.properties";
+   private static final String GRADLE_MODEL_CLASS = "org/jboss/forge/addon/gradle/model/GradleModel.class";
+   private static final String INIT_SCRIPT_DIR = "gradle";
+
+   private String initScriptLocation;
+
+   /**
+    * Returns absolute path of the init script, installing it if necessary.
+    */
+   public synchronized String getInitScriptLocation()
+   {
+      if (initScriptLocation == null || !new File(initScriptLocation).isFile())
+      {
+         String source = initScriptSource();
+         File dir = new File(OperatingSystemUtils.getUserForgeDir(), INIT_SCRIPT_DIR);
+         File script = new File(dir, "forge-plugin-" + sha1(source) + ".gradle");
+         if (!script.isFile())
+         {
+            write(script, source);
+         }
+         initScriptLocation = script.getAbsolutePath();
+      }
+      return initScriptLocation;
+   }
+
+   private String initScriptSource()
+   {
+      ClassLoader classLoader = getClass().getClassLoader();
+      File pluginJar = classpathRoot(classLoader.getResource(FORGE_PLUGIN_DESCRIPTOR), FORGE_PLUGIN_DESCRIPTOR);
+      File modelJar = classpathRoot(classLoader.getResource(GRADLE_MODEL_CLASS), GRADLE_MODEL_CLASS);
+
+      if (pluginJar == null || modelJar == null)
+      {
+         // Plugin isn't available locally, so it's resolved from repository by version
+         LOG.fine("Forge plugin jar not found in addon classpath, falling back to repository lookup");
+         return readResource(FORGE_PLUGIN_SCRIPT);
+      }
+
+      return "initscript {\n" +
+               "    dependencies {\n" +
+               "        classpath files(" + groovyString(pluginJar) + ", " + groovyString(modelJar) + ")\n" +
+               "    }\n" +
+               "}\n" +
+               "\n" +
+               "allprojects {\n" +
+               "    apply plugin: org.jboss.forge.addon.gradle.plugin.ForgePlugin\n" +
+               "}\n";
+   }
+
+   /**
+    * Returns jar file or directory from which given resource was loaded, or null if it's not a local file.
+    */
+   private File classpathRoot(URL resource, String resourceName)
+   {
+      if (resource == null)
+      {
+         return null;
+      }
+      try
+      {
+         String url = resource.toString();
+         if (url.startsWith("jar:file:"))
+         {
+            return new File(new URL(url.substring("jar:".length(), url.indexOf("!/"))).toURI());
+         }
+         if (url.startsWith("file:"))
+         {
+            return new File(new URL(url.substring(0, url.length() - resourceName.length())).toURI());
+         }
+      }
+      catch (IOException | URISyntaxException | IllegalArgumentException e)
+      {
+         LOG.log(Level.FINE, "Couldn't locate classpath root of " + resource, e);
+      }
+      return null;
+   }
+
+   private String groovyString(File file)
+   {
+      return "'" + file.getAbsolutePath().replace("\\", "\\\\").replace("'", "\\'") + "'";
+   }
+
+   private String readResource(String name)
+   {
+      try (InputStream input = getClass().getResourceAsStream(name);
+               Scanner scanner = new Scanner(input, UTF_8.name()))
+      {
+         return scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Couldn't read " + name, e);
+      }
+   }
+
+   private void write(File script, String source)
+   {
+      script.getParentFile().mkdirs();
+      // Written to temporary file first, so other sessions never see partially written script
+      File temp = new File(script.getParentFile(), script.getName() + "." + System.nanoTime() + ".tmp");
+      try (OutputStream output = new FileOutputStream(temp))
+      {
+         output.write(source.getBytes(UTF_8));
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Couldn't write init script " + script, e);
+      }
+      if (!temp.renameTo(script))
+      {
+         temp.delete();
+         if (!script.isFile())
+         {
+            throw new IllegalStateException("Couldn't write init script " + script);
+         }
+      }
+   }
+
+   private static String sha1(String source)
+   {
+      try
+      {
+         byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(UTF_8));
+         StringBuilder builder = new StringBuilder();
+         for (byte b : digest)
+         {
+            builder.append(String.format("%02x", b));
+         }
+         return builder.toString();
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IllegalStateException(e);
+      }
+   }
+}
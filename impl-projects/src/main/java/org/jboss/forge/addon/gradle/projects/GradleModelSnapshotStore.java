@@ -0,0 +1,252 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.furnace.util.OperatingSystemUtils;
+
+/**
+ * Stores effective models on disk, keyed by their fingerprint, so a new session can reuse the model evaluated by
+ * previous one. Fingerprint doesn't capture everything the model depends on, so stored model is only a base which
+ * Gradle has to confirm, either as not modified or by sending changes. Snapshots which can't be read (e.g. written by
+ * other version of the addon) are treated as missing.
+ *
+ * @author Adam Wyłuda
+ */
+@Singleton
+public class GradleModelSnapshotStore
+{
+   private static final Logger LOG = Logger.getLogger(GradleModelSnapshotStore.class.getName());
+
+   private static final String SNAPSHOT_DIR = "gradle" + File.separator + "models";
+   private static final String SNAPSHOT_EXTENSION = ".ser";
+   private static final int MAX_SNAPSHOTS = 256;
+
+   /**
+    * Model stored on disk together with the time it was evaluated.
+    */
+   public static final class StoredModel
+   {
+      private final GradleModel model;
+      private final long timestamp;
+
+      private StoredModel(GradleModel model, long timestamp)
+      {
+         this.model = model;
+         this.timestamp = timestamp;
+      }
+
+      public GradleModel getModel()
+      {
+         return model;
+      }
+
+      /**
+       * Returns time in milliseconds when the model was evaluated by Gradle.
+       */
+      public long getTimestamp()
+      {
+         return timestamp;
+      }
+   }
+
+   /**
+    * Returns model stored under given fingerprint, or null if there is no such model.
+    */
+   public StoredModel load(String fingerprint)
+   {
+      if (fingerprint == null || fingerprint.isEmpty())
+      {
+         return null;
+      }
+      File snapshot = snapshotFile(fingerprint);
+      if (!snapshot.isFile())
+      {
+         return null;
+      }
+      try (ObjectInputStream input = new ModelInputStream(new BufferedInputStream(new FileInputStream(snapshot))))
+      {
+         long timestamp = input.readLong();
+         GradleModel model = (GradleModel) input.readObject();
+         if (!fingerprint.equals(model.getFingerprint()))
+         {
+            return null;
+         }
+         // Marks snapshot as recently used, so it's pruned last
+         snapshot.setLastModified(System.currentTimeMillis());
+         return new StoredModel(model, timestamp);
+      }
+      catch (IOException | ClassNotFoundException | ClassCastException e)
+      {
+         LOG.log(Level.FINE, "Couldn't read model snapshot " + snapshot, e);
+         snapshot.delete();
+         return null;
+      }
+   }
+
+   /**
+    * Stores given model under its fingerprint, together with the time in milliseconds when it was evaluated.
+    */
+   public void save(GradleModel model, long timestamp)
+   {
+      if (model.getFingerprint() == null || model.getFingerprint().isEmpty())
+      {
+         return;
+      }
+      File snapshot = snapshotFile(model.getFingerprint());
+      snapshot.getParentFile().mkdirs();
+      // Written to temporary file first, so other sessions never see partially written snapshot
+      File temp = new File(snapshot.getParentFile(), snapshot.getName() + "." + System.nanoTime() + ".tmp");
+      try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+      {
+         output.writeLong(timestamp);
+         // Model returned by Gradle is a proxy, builder copy is serializable
+         output.writeObject(GradleModelBuilder.create(model));
+      }
+      catch (IOException e)
+      {
+         LOG.log(Level.FINE, "Couldn't write model snapshot " + snapshot, e);
+         temp.delete();
+         return;
+      }
+      if (!temp.renameTo(snapshot))
+      {
+         temp.delete();
+      }
+      prune(snapshot.getParentFile());
+   }
+
+   private File snapshotFile(String fingerprint)
+   {
+      return new File(new File(OperatingSystemUtils.getUserForgeDir(), SNAPSHOT_DIR), fingerprint + SNAPSHOT_EXTENSION);
+   }
+
+   /**
+    * Removes least recently used snapshots above the limit.
+    */
+   private void prune(File dir)
+   {
+      File[] snapshots = dir.listFiles();
+      if (snapshots == null || snapshots.length <= MAX_SNAPSHOTS)
+      {
+         return;
+      }
+      Arrays.sort(snapshots, new Comparator<File>()
+      {
+         @Override
+         public int compare(File first, File second)
+         {
+            return Long.compare(second.lastModified(), first.lastModified());
+         }
+      });
+      for (int i = MAX_SNAPSHOTS; i < snapshots.length; i++)
+      {
+         snapshots[i].delete();
+      }
+   }
+
+   /**
+    * Reads only classes which can be a part of serialized model: model classes and basic collections. Snapshots are
+    * files which anyone with access to user's Forge directory can replace, so other classes are rejected before they
+    * are loaded. Model classes are resolved using class loader of the model API, which isn't visible to the default one
+    * in Furnace.
+    */
+   private static class ModelInputStream extends ObjectInputStream
+   {
+      private static final String MODEL_PACKAGE = GradleModel.class.getName().substring(0,
+               GradleModel.class.getName().lastIndexOf('.') + 1);
+      private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+               "java.lang.Boolean",
+               "java.lang.Enum",
+               "java.lang.Integer",
+               "java.lang.Long",
+               "java.lang.Number",
+               "java.lang.Object",
+               "java.lang.String",
+               "java.util.ArrayList",
+               "java.util.Arrays$ArrayList",
+               "java.util.Collections$EmptyList",
+               "java.util.Collections$EmptyMap",
+               "java.util.Collections$EmptySet",
+               "java.util.Collections$UnmodifiableCollection",
+               "java.util.Collections$UnmodifiableList",
+               "java.util.Collections$UnmodifiableMap",
+               "java.util.Collections$UnmodifiableRandomAccessList",
+               "java.util.Collections$UnmodifiableSet",
+               "java.util.HashMap",
+               "java.util.HashSet",
+               "java.util.LinkedHashMap",
+               "java.util.LinkedHashSet",
+               "java.util.LinkedList",
+               "java.util.TreeMap",
+               "java.util.TreeSet"));
+
+      public ModelInputStream(InputStream input) throws IOException
+      {
+         super(input);
+      }
+
+      @Override
+      protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+      {
+         if (!isAllowed(desc.getName()))
+         {
+            throw new InvalidClassException(desc.getName(), "Class is not a part of Gradle model");
+         }
+         try
+         {
+            return Class.forName(desc.getName(), false, GradleModel.class.getClassLoader());
+         }
+         catch (ClassNotFoundException e)
+         {
+            return super.resolveClass(desc);
+         }
+      }
+
+      @Override
+      protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException
+      {
+         throw new InvalidClassException("Proxy classes are not a part of Gradle model");
+      }
+
+      private static boolean isAllowed(String name)
+      {
+         // Arrays of allowed classes, e.g. [Ljava.lang.String;
+         if (name.startsWith("[L") && name.endsWith(";"))
+         {
+            return isAllowed(name.substring(2, name.length() - 1));
+         }
+         if (name.startsWith("["))
+         {
+            return isAllowed(name.substring(1));
+         }
+         return ALLOWED_CLASSES.contains(name)
+                  || (name.startsWith(MODEL_PACKAGE) && name.indexOf('.', MODEL_PACKAGE.length()) < 0);
+      }
+   }
+}
@@ -0,0 +1,924 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jboss.forge.addon.gradle.model.GradleBuildFingerprint;
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelDelta;
+import org.jboss.forge.addon.gradle.model.GradleModelDeltaBuilder;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModel;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelApplyUtil;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelLoadUtil;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelSizeUtil;
+import org.jboss.forge.addon.resource.FileResource;
+import org.jboss.forge.addon.resource.ResourceFactory;
+import org.jboss.forge.furnace.addons.Addon;
+
+/**
+ * Holds loaded models of all projects, keyed by canonical path of the project directory, so all {@link GradleFacet}
+ * instances of the same project share one model. For each project at most one load runs at a time, other callers
+ * wait for its result. Readers get read-only views of immutable snapshots, so they neither copy the model nor take a
+ * lock. Callers which change the model copy it first.
+ * <p>
+ * Every change of the model is committed as a new version of the snapshot. Commits of a project are serialized by
+ * its write lock, and a snapshot is replaced only as a whole, so readers keep using the version they started with
+ * and never see a partially applied change. A commit names the version its model was derived from, if other versions
+ * were committed since then, its changes are rebased onto the current version, so concurrent changes aren't lost.
+ * <p>
+ * Memory used by the models is bounded by a budget, which can be set in bytes by the
+ * <i>org.jboss.forge.addon.gradle.modelCacheSize</i> system property. When estimated size of the models exceeds the
+ * budget, least recently used models are held only by soft references, so garbage collector can drop them when memory
+ * is short. Dropped models are loaded again, using their on-disk snapshots as a base of the delta. Projects whose
+ * models were dropped, or never loaded, are forgotten after a while of inactivity, together with watching of their
+ * build inputs.
+ * <p>
+ * Models are refreshed in background by a small shared pool of threads. Refreshes of projects of the same build are
+ * coalesced, so a change of build inputs shared by many projects (e.g. root build.gradle) runs a single Gradle build.
+ *
+ * @author Adam Wyłuda
+ */
+@Singleton
+public class GradleModelStore
+{
+   private static final Logger LOG = Logger.getLogger(GradleModelStore.class.getName());
+
+   private static final String BUILD_SCRIPT = "build.gradle";
+   private static final String CACHE_SIZE_PROPERTY = "org.jboss.forge.addon.gradle.modelCacheSize";
+   // By default models may take up to 1/16 of the heap
+   private static final long DEFAULT_CACHE_SIZE = Runtime.getRuntime().maxMemory() / 16;
+   private static final long RELEASE_IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+   private static final int REFRESH_THREADS = 2;
+
+   @Inject
+   private GradleManager manager;
+   @Inject
+   private ResourceFactory resourceFactory;
+   @Inject
+   private Addon addon;
+   @Inject
+   private GradleInitScriptProvider initScriptProvider;
+   @Inject
+   private GradleModelSnapshotStore snapshotStore;
+   @Inject
+   private GradleBuildWatcher buildWatcher;
+
+   private final ConcurrentMap<String, ProjectModel> projects = new ConcurrentHashMap<>();
+   private final long cacheSize = Long.getLong(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+   // Shared by all projects, so versions keep increasing even when a released project is loaded again
+   private final AtomicLong versions = new AtomicLong();
+   // Pending background refreshes, by root directory of the build
+   private final ConcurrentMap<File, BuildRefresh> buildRefreshes = new ConcurrentHashMap<>();
+   private final ExecutorService refreshExecutor = createRefreshExecutor();
+
+   /**
+    * Persists changes of the model, committing a new version of the snapshot.
+    */
+   public interface ModelWriter
+   {
+      /**
+       * Persists changes between current and new model to the scripts, and returns new build script of the project.
+       * Called with write lock of the project held, so it must not wait for the model to be loaded.
+       */
+      String write(GradleModel currentModel, GradleModel newModel);
+   }
+
+   /**
+    * Returns read-only view of current model of the project, loading it if necessary. Callers which want to commit a
+    * new model modify its copy.
+    */
+   public GradleModel getModel(File projectDir)
+   {
+      return currentSnapshot(project(projectDir)).view;
+   }
+
+   /**
+    * Returns read-only view of current model of the project together with its version, loading it if necessary. The
+    * snapshot is a base for committing changes made to a copy of its model.
+    */
+   public GradleModelSnapshot getModelSnapshot(File projectDir)
+   {
+      ModelSnapshot current = currentSnapshot(project(projectDir));
+      return new GradleModelSnapshot(current.view, current.timestamp, current.version);
+   }
+
+   /**
+    * Returns read-only view of last known model of the project, refreshing it in background if it's older than given
+    * limit.
+    *
+    * @see GradleFacet#getModel(long, TimeUnit)
+    */
+   public GradleModelSnapshot getModel(File projectDir, long maxAge, TimeUnit unit)
+   {
+      ProjectModel project = project(projectDir);
+      ModelSnapshot current = resident(project);
+      if (current == null)
+      {
+         current = restoreStoredSnapshot(project);
+      }
+      if (current == null)
+      {
+         current = awaitLoad(project, null);
+      }
+      else if (project.stale || System.currentTimeMillis() - current.timestamp > unit.toMillis(maxAge))
+      {
+         refreshInBackground(project);
+      }
+      return new GradleModelSnapshot(current.view, current.timestamp, current.version);
+   }
+
+   /**
+    * Commits new model of the project, derived from model of the base snapshot. If the base is null, the model is
+    * derived from the current version. Writer persists the changes, which are then applied to the current model, so
+    * they are visible right away. Effective model is reconciled with Gradle in background.
+    */
+   public void commit(File projectDir, GradleModelSnapshot base, GradleModel newModel, ModelWriter writer)
+   {
+      ProjectModel project = project(projectDir);
+      ModelSnapshot current = lockCurrentSnapshot(project);
+      try
+      {
+         if (base != null && base.getVersion() != current.version)
+         {
+            // Other versions were committed or loaded since the base, only changes made to the base are applied
+            newModel = GradleModelApplyUtil.rebase(current.model, base.getModel(), newModel);
+         }
+         String script = writer.write(current.view, newModel);
+
+         GradleModel effectiveModel = GradleModelApplyUtil.apply(current.model, current.model, newModel);
+         Set<String> pendingSections = new HashSet<>(current.pendingSections);
+         pendingSections.addAll(GradleModelApplyUtil.changedSections(current.model, newModel));
+         publish(project, current.effectiveModel, GradleModelLoadUtil.load(effectiveModel, script), pendingSections,
+                  current.timestamp);
+      }
+      finally
+      {
+         project.writeLock.unlock();
+      }
+      buildWatcher.notifyChanged(project.dir);
+   }
+
+   private ProjectModel project(File projectDir)
+   {
+      File dir;
+      try
+      {
+         dir = projectDir.getCanonicalFile();
+      }
+      catch (IOException e)
+      {
+         dir = projectDir.getAbsoluteFile();
+      }
+      String key = dir.getPath();
+      ProjectModel project = projects.get(key);
+      if (project == null)
+      {
+         ProjectModel newProject = new ProjectModel(key, dir, GradleBuildFingerprint.findRootDir(dir));
+         project = projects.putIfAbsent(key, newProject);
+         if (project == null)
+         {
+            project = newProject;
+            watchBuildInputs(project);
+         }
+      }
+      return project;
+   }
+
+   /**
+    * Publishes model stored by previous session as a stale snapshot of the project, with the time it was evaluated. It
+    * is served only to readers which accept outdated models, until Gradle confirms it or sends changes. Returns null if
+    * there is no stored model.
+    */
+   private ModelSnapshot restoreStoredSnapshot(ProjectModel project)
+   {
+      GradleModelSnapshotStore.StoredModel stored = snapshotStore.load(
+               GradleBuildFingerprint.calculate(project.dir, addon.getId().getVersion().toString()));
+      if (stored == null)
+      {
+         return null;
+      }
+      project.writeLock.lock();
+      try
+      {
+         ModelSnapshot current = project.snapshot.get();
+         if (current != null)
+         {
+            // Loaded or restored by other thread in the meantime
+            return current;
+         }
+         project.stale = true;
+         return publish(project, stored.getModel(),
+                  GradleModelLoadUtil.load(stored.getModel(), readBuildScript(project.dir)),
+                  Collections.<String> emptySet(), stored.getTimestamp());
+      }
+      finally
+      {
+         project.writeLock.unlock();
+      }
+   }
+
+   private ModelSnapshot currentSnapshot(ProjectModel project)
+   {
+      ModelSnapshot current = resident(project);
+      if (current != null && !project.stale)
+      {
+         return current;
+      }
+      return awaitLoad(project, current);
+   }
+
+   /**
+    * Returns current snapshot with write lock of the project held. The snapshot is loaded before taking the lock,
+    * since publishing of loaded snapshot needs the lock too.
+    */
+   private ModelSnapshot lockCurrentSnapshot(ProjectModel project)
+   {
+      while (true)
+      {
+         ModelSnapshot current = currentSnapshot(project);
+         project.writeLock.lock();
+         if (project.snapshot.get() == current)
+         {
+            return current;
+         }
+         // Other version was committed in the meantime
+         project.writeLock.unlock();
+      }
+   }
+
+   /**
+    * Starts loading the model unless it's already being loaded, and waits for the result. Caller passes the snapshot it
+    * has seen (or null), if other valid snapshot was published since then, e.g. by load which has just finished, it's
+    * returned without loading the model again.
+    */
+   private ModelSnapshot awaitLoad(final ProjectModel project, final ModelSnapshot seen)
+   {
+      while (true)
+      {
+         FutureTask<ModelSnapshot> task = project.loading.get();
+         if (task == null)
+         {
+            FutureTask<ModelSnapshot> newTask = new FutureTask<>(new Callable<ModelSnapshot>()
+            {
+               @Override
+               public ModelSnapshot call()
+               {
+                  ModelSnapshot current = project.snapshot.get();
+                  if (current != null && current != seen && !project.stale)
+                  {
+                     return current;
+                  }
+                  return loadModel(project);
+               }
+            });
+            if (!project.loading.compareAndSet(null, newTask))
+            {
+               // Other thread started loading in the meantime
+               continue;
+            }
+            try
+            {
+               newTask.run();
+            }
+            finally
+            {
+               project.loading.compareAndSet(newTask, null);
+            }
+            task = newTask;
+         }
+
+         try
+         {
+            return task.get();
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading Gradle model", e);
+         }
+         catch (ExecutionException e)
+         {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+               throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+               throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+         }
+      }
+   }
+
+   /**
+    * Loads the model and publishes it as a new snapshot. Called only from
+    * {@link #awaitLoad(ProjectModel, ModelSnapshot)}, so there is at most one load of the project running at a time.
+    */
+   private ModelSnapshot loadModel(ProjectModel project)
+   {
+      // Cleared before reading build inputs, so changes made during loading trigger another refresh
+      project.stale = false;
+      try
+      {
+         return loadModel(project, System.currentTimeMillis());
+      }
+      catch (RuntimeException | Error e)
+      {
+         // Current snapshot wasn't confirmed by Gradle
+         project.stale = true;
+         throw e;
+      }
+   }
+
+   private ModelSnapshot loadModel(ProjectModel project, long timestamp)
+   {
+      String projectPath = project.dir.getPath();
+      String forgePluginScriptPath = initScriptProvider.getInitScriptLocation();
+      String forgePluginVersion = addon.getId().getVersion().toString();
+
+      ModelSnapshot previous = resident(project);
+      GradleModel baseModel;
+      if (previous != null)
+      {
+         baseModel = previous.effectiveModel;
+      }
+      else
+      {
+         // Model evaluated in previous session may still be current, but only Gradle can confirm it
+         GradleModelSnapshotStore.StoredModel stored = snapshotStore.load(
+                  GradleBuildFingerprint.calculate(project.dir, forgePluginVersion));
+         baseModel = stored != null ? stored.getModel() : null;
+      }
+
+      GradleModel effectiveModel;
+      if (baseModel == null)
+      {
+         effectiveModel = manager.buildModel(projectPath, forgePluginScriptPath, forgePluginVersion);
+         snapshotStore.save(effectiveModel, timestamp);
+      }
+      else
+      {
+         // Only changes since evaluation of the base are transferred
+         String baseFingerprint = baseModel.getFingerprint();
+         GradleModelDelta delta = manager.buildModelDelta(projectPath, forgePluginScriptPath, forgePluginVersion,
+                  baseFingerprint);
+         effectiveModel = GradleModelDeltaBuilder.apply(baseModel, delta);
+         if (!baseFingerprint.equals(effectiveModel.getFingerprint()))
+         {
+            snapshotStore.save(effectiveModel, timestamp);
+         }
+      }
+      return publishLoaded(project, previous, effectiveModel, timestamp);
+   }
+
+   /**
+    * Publishes effective model loaded from Gradle, previous is the snapshot which was current when loading started.
+    */
+   private ModelSnapshot publishLoaded(ProjectModel project, ModelSnapshot previous, GradleModel effectiveModel,
+            long timestamp)
+   {
+      project.writeLock.lock();
+      try
+      {
+         ModelSnapshot current = project.snapshot.get();
+         if (current != null && current != previous && !current.pendingSections.isEmpty())
+         {
+            // Changes were committed during loading and Gradle may not have seen them, so they stay pending and only
+            // base of the next delta is updated
+            return publish(project, effectiveModel, current.model, current.pendingSections, timestamp);
+         }
+         // Read direct properties
+         return publish(project, effectiveModel,
+                  GradleModelLoadUtil.load(effectiveModel, readBuildScript(project.dir)),
+                  Collections.<String> emptySet(), timestamp);
+      }
+      finally
+      {
+         project.writeLock.unlock();
+      }
+   }
+
+   /**
+    * Returns snapshot of the project, making it resident again if it was evicted but not collected yet.
+    */
+   private ModelSnapshot resident(ProjectModel project)
+   {
+      project.lastAccess = System.nanoTime();
+      ModelSnapshot current = project.snapshot.get();
+      if (current != null)
+      {
+         return current;
+      }
+      SoftReference<ModelSnapshot> evicted = project.evicted;
+      ModelSnapshot restored = evicted != null ? evicted.get() : null;
+      if (restored != null && project.snapshot.compareAndSet(null, restored))
+      {
+         project.evicted = null;
+         enforceCacheSize();
+         return restored;
+      }
+      // Either collected, or published by other thread in the meantime
+      return project.snapshot.get();
+   }
+
+   /**
+    * Publishes new version of the snapshot. Must be called with write lock of the project held.
+    */
+   private ModelSnapshot publish(ProjectModel project, GradleModel effectiveModel, GradleModel model,
+            Set<String> pendingSections, long timestamp)
+   {
+      ModelSnapshot snapshot = new ModelSnapshot(effectiveModel, model, pendingSections, timestamp,
+               versions.incrementAndGet());
+      project.snapshot.set(snapshot);
+      project.evicted = null;
+      enforceCacheSize();
+      return snapshot;
+   }
+
+   /**
+    * Evicts least recently used snapshots until their estimated size fits into the cache. Snapshots with pending
+    * changes exist only in memory, so they are never evicted, and neither is the most recently used one. Projects
+    * without a model are released.
+    */
+   private synchronized void enforceCacheSize()
+   {
+      long size = 0;
+      long now = System.nanoTime();
+      List<ProjectModel> candidates = new ArrayList<>();
+      for (ProjectModel project : projects.values())
+      {
+         ModelSnapshot snapshot = project.snapshot.get();
+         if (snapshot != null)
+         {
+            size += snapshot.size;
+            if (snapshot.pendingSections.isEmpty())
+            {
+               candidates.add(project);
+            }
+         }
+         else if (isReleasable(project, now))
+         {
+            release(project);
+         }
+      }
+      if (size <= cacheSize)
+      {
+         return;
+      }
+
+      Collections.sort(candidates, new Comparator<ProjectModel>()
+      {
+         @Override
+         public int compare(ProjectModel first, ProjectModel second)
+         {
+            return Long.compare(first.lastAccess, second.lastAccess);
+         }
+      });
+      for (int i = 0; i < candidates.size() - 1 && size > cacheSize; i++)
+      {
+         ProjectModel project = candidates.get(i);
+         ModelSnapshot snapshot = project.snapshot.get();
+         if (snapshot == null)
+         {
+            continue;
+         }
+         project.evicted = new SoftReference<>(snapshot);
+         if (project.snapshot.compareAndSet(snapshot, null))
+         {
+            size -= snapshot.size;
+         }
+      }
+   }
+
+   /**
+    * Returns true if the project has no model (it was never loaded or evicted model was collected), it's not being
+    * loaded and it wasn't read for a while.
+    */
+   private boolean isReleasable(ProjectModel project, long now)
+   {
+      SoftReference<ModelSnapshot> evicted = project.evicted;
+      return (evicted == null || evicted.get() == null) && project.loading.get() == null
+               && !project.refreshing.get() && now - project.lastAccess > RELEASE_IDLE_NANOS;
+   }
+
+   /**
+    * Forgets the project and stops watching its build inputs. If it's read again, it's loaded like a new project.
+    */
+   private void release(ProjectModel project)
+   {
+      GradleBuildWatcher.Listener listener = project.listener;
+      if (listener != null && projects.remove(project.key, project))
+      {
+         buildWatcher.unregister(project.dir, listener);
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private String readBuildScript(File projectDir)
+   {
+      FileResource<?> script = resourceFactory.create(FileResource.class, new File(projectDir, BUILD_SCRIPT));
+      return script.exists() ? script.getContents() : "";
+   }
+
+   /**
+    * Schedules refresh of the model in background, unless it's already being refreshed. Projects of the same build
+    * are refreshed one batch at a time, so projects whose refresh is requested while their build is being refreshed
+    * are refreshed together in the next batch.
+    */
+   private void refreshInBackground(ProjectModel project)
+   {
+      if (project.loading.get() != null || !project.refreshing.compareAndSet(false, true))
+      {
+         return;
+      }
+      BuildRefresh refresh = buildRefreshes.get(project.rootDir);
+      if (refresh == null)
+      {
+         BuildRefresh newRefresh = new BuildRefresh(project.rootDir);
+         refresh = buildRefreshes.putIfAbsent(project.rootDir, newRefresh);
+         if (refresh == null)
+         {
+            refresh = newRefresh;
+         }
+      }
+      synchronized (refresh)
+      {
+         refresh.projects.add(project);
+         if (refresh.scheduled)
+         {
+            return;
+         }
+         refresh.scheduled = true;
+      }
+
+      final BuildRefresh scheduledRefresh = refresh;
+      try
+      {
+         refreshExecutor.execute(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               refreshBuild(scheduledRefresh);
+            }
+         });
+      }
+      catch (RejectedExecutionException e)
+      {
+         // Store is stopped
+         synchronized (refresh)
+         {
+            for (ProjectModel pendingProject : refresh.projects)
+            {
+               pendingProject.refreshing.set(false);
+            }
+            refresh.projects.clear();
+            refresh.scheduled = false;
+         }
+      }
+   }
+
+   /**
+    * Refreshes pending projects of the build, until there are none left.
+    */
+   private void refreshBuild(BuildRefresh refresh)
+   {
+      while (true)
+      {
+         List<ProjectModel> batch;
+         synchronized (refresh)
+         {
+            if (refresh.projects.isEmpty())
+            {
+               refresh.scheduled = false;
+               return;
+            }
+            batch = new ArrayList<>(refresh.projects);
+            refresh.projects.clear();
+         }
+
+         List<ProjectModel> remaining = batch;
+         try
+         {
+            if (batch.size() > 1)
+            {
+               remaining = refreshTogether(refresh.rootDir, batch);
+            }
+            for (ProjectModel project : remaining)
+            {
+               try
+               {
+                  awaitLoad(project, project.snapshot.get());
+               }
+               catch (RuntimeException e)
+               {
+                  // Model is still usable, next read will try again
+                  LOG.log(Level.WARNING, "Couldn't refresh Gradle model of " + project.dir, e);
+               }
+            }
+         }
+         finally
+         {
+            for (ProjectModel project : batch)
+            {
+               project.refreshing.set(false);
+            }
+         }
+      }
+   }
+
+   /**
+    * Refreshes models of several projects of the same build by a single Gradle build, which evaluates all projects of
+    * the build. Each project is marked as being loaded meanwhile, so readers wait for the result like with a regular
+    * load. Returns projects which couldn't be refreshed this way, since their model isn't loaded or they are being
+    * loaded already.
+    */
+   private List<ProjectModel> refreshTogether(final File rootDir, List<ProjectModel> projects)
+   {
+      final FutureTask<Map<String, GradleModel>> build = new FutureTask<>(new Callable<Map<String, GradleModel>>()
+      {
+         @Override
+         public Map<String, GradleModel> call()
+         {
+            GradleMultiProjectModel multiProjectModel = manager.buildMultiProjectModel(rootDir.getPath(),
+                     initScriptProvider.getInitScriptLocation(), addon.getId().getVersion().toString());
+            Map<String, GradleModel> models = new HashMap<>();
+            for (GradleModel model : multiProjectModel.getProjectModels())
+            {
+               models.put(model.getProjectPath(), model);
+            }
+            return models;
+         }
+      });
+      final long timestamp = System.currentTimeMillis();
+
+      List<ProjectModel> remaining = new ArrayList<>();
+      Map<ProjectModel, FutureTask<ModelSnapshot>> loads = new LinkedHashMap<>();
+      for (final ProjectModel project : projects)
+      {
+         final ModelSnapshot previous = project.snapshot.get();
+         if (previous == null)
+         {
+            remaining.add(project);
+            continue;
+         }
+         FutureTask<ModelSnapshot> load = new FutureTask<>(new Callable<ModelSnapshot>()
+         {
+            @Override
+            public ModelSnapshot call() throws Exception
+            {
+               return publishBuilt(project, previous, build, timestamp);
+            }
+         });
+         if (project.loading.compareAndSet(null, load))
+         {
+            // Cleared before reading build inputs, like in a regular load
+            project.stale = false;
+            loads.put(project, load);
+         }
+         else
+         {
+            remaining.add(project);
+         }
+      }
+
+      build.run();
+      for (Map.Entry<ProjectModel, FutureTask<ModelSnapshot>> entry : loads.entrySet())
+      {
+         ProjectModel project = entry.getKey();
+         FutureTask<ModelSnapshot> load = entry.getValue();
+         try
+         {
+            load.run();
+            load.get();
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         catch (ExecutionException e)
+         {
+            LOG.log(Level.WARNING, "Couldn't refresh Gradle model of " + project.dir, e.getCause());
+         }
+         finally
+         {
+            project.loading.compareAndSet(load, null);
+         }
+      }
+      return remaining;
+   }
+
+   /**
+    * Publishes model of the project from the build of all projects, which has already run. If the build doesn't
+    * contain the project, it's loaded alone.
+    */
+   private ModelSnapshot publishBuilt(ProjectModel project, ModelSnapshot previous,
+            FutureTask<Map<String, GradleModel>> build, long timestamp) throws Exception
+   {
+      try
+      {
+         GradleModel effectiveModel;
+         try
+         {
+            effectiveModel = build.get().get(previous.effectiveModel.getProjectPath());
+         }
+         catch (ExecutionException e)
+         {
+            if (e.getCause() instanceof Error)
+            {
+               throw (Error) e.getCause();
+            }
+            throw (Exception) e.getCause();
+         }
+         if (effectiveModel == null)
+         {
+            return loadModel(project);
+         }
+         if (!effectiveModel.getFingerprint().equals(previous.effectiveModel.getFingerprint()))
+         {
+            snapshotStore.save(effectiveModel, timestamp);
+         }
+         return publishLoaded(project, previous, effectiveModel, timestamp);
+      }
+      catch (Exception | Error e)
+      {
+         // Current snapshot wasn't confirmed by Gradle
+         project.stale = true;
+         throw e;
+      }
+   }
+
+   @PreDestroy
+   public void stop()
+   {
+      refreshExecutor.shutdownNow();
+   }
+
+   private static ExecutorService createRefreshExecutor()
+   {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 1, TimeUnit.MINUTES,
+               new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+               {
+                  @Override
+                  public Thread newThread(Runnable runnable)
+                  {
+                     Thread thread = new Thread(runnable, "Gradle model refresh");
+                     thread.setDaemon(true);
+                     return thread;
+                  }
+               });
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+   }
+
+   /**
+    * Marks model as stale when build inputs are changed outside of the facet and refreshes it in background.
+    */
+   private void watchBuildInputs(final ProjectModel project)
+   {
+      project.listener = new GradleBuildWatcher.Listener()
+      {
+         @Override
+         public void buildChanged()
+         {
+            ModelSnapshot current = project.snapshot.get();
+            if (current == null)
+            {
+               // Model isn't used now, it's refreshed when it's read next time
+               project.stale = true;
+               return;
+            }
+            // Changes made through the facet are already applied, so readers don't need to wait for reconciliation
+            if (current.pendingSections.isEmpty())
+            {
+               project.stale = true;
+            }
+            // Loaded on other thread, so notifications of other projects aren't delayed
+            refreshInBackground(project);
+         }
+      };
+      buildWatcher.register(project.dir, project.listener);
+   }
+
+   /**
+    * Model state of a single project.
+    */
+   private static final class ProjectModel
+   {
+      private final String key;
+      private final File dir;
+      // Root directory of the build the project belongs to
+      private final File rootDir;
+      // Listener of changed build inputs, registered while the project is known to the store
+      private volatile GradleBuildWatcher.Listener listener;
+      // Last loaded model, replaced as a whole so readers never see partially loaded state
+      private final AtomicReference<ModelSnapshot> snapshot = new AtomicReference<>();
+      // Model evicted from the cache, which may still be reused
+      private volatile SoftReference<ModelSnapshot> evicted;
+      // Time of the last read, for eviction of least recently used models
+      private volatile long lastAccess = System.nanoTime();
+      // Set when build inputs changed after the snapshot was loaded
+      private volatile boolean stale;
+      // Load in progress, which other callers wait for instead of starting their own
+      private final AtomicReference<FutureTask<ModelSnapshot>> loading = new AtomicReference<>();
+      // Set while background refresh is scheduled or running
+      private final AtomicBoolean refreshing = new AtomicBoolean();
+      // Serializes commits of new versions
+      private final ReentrantLock writeLock = new ReentrantLock();
+
+      private ProjectModel(String key, File dir, File rootDir)
+      {
+         this.key = key;
+         this.dir = dir;
+         this.rootDir = rootDir;
+      }
+   }
+
+   /**
+    * Projects of a build waiting for background refresh.
+    */
+   private static final class BuildRefresh
+   {
+      private final File rootDir;
+      // Guarded by this
+      private final Set<ProjectModel> projects = new LinkedHashSet<>();
+      // Set while a task refreshing the projects is scheduled or running, guarded by this
+      private boolean scheduled;
+
+      private BuildRefresh(File rootDir)
+      {
+         this.rootDir = rootDir;
+      }
+   }
+
+   /**
+    * Loaded model together with the effective model returned by Gradle, which is the base for next delta. Model may
+    * contain changes applied locally which Gradle didn't evaluate yet, in which case their sections are pending. Models
+    * are never modified once the snapshot is published, and readers get only a read-only view of the model.
+    */
+   private static final class ModelSnapshot
+   {
+      private final GradleModel effectiveModel;
+      private final GradleModel model;
+      // Shared by all readers of this version
+      private final GradleModel view;
+      private final Set<String> pendingSections;
+      // When the effective model was evaluated
+      private final long timestamp;
+      // Estimated memory taken by the models, in bytes
+      private final long size;
+      private final long version;
+
+      private ModelSnapshot(GradleModel effectiveModel, GradleModel model, Set<String> pendingSections,
+               long timestamp, long version)
+      {
+         this.effectiveModel = effectiveModel;
+         this.model = model;
+         this.view = UnmodifiableGradleModel.of(model);
+         this.pendingSections = Collections.unmodifiableSet(pendingSections);
+         this.timestamp = timestamp;
+         this.version = version;
+         this.size = GradleModelSizeUtil.estimateSize(effectiveModel) + GradleModelSizeUtil.estimateSize(model);
+      }
+   }
+}
@@ -7,6 +7,8 @@
 package org.jboss.forge.addon.gradle.projects;
 
 import org.jboss.forge.addon.facets.FacetFactory;
+import org.jboss.forge.addon.gradle.projects.facets.GradleBuildPerformanceFacet;
+import org.jboss.forge.addon.gradle.projects.facets.GradleClassLoaderFacet;
 import org.jboss.forge.addon.gradle.projects.facets.GradleDependencyFacet;
 import org.jboss.forge.addon.gradle.projects.facets.GradleJavaCompilerFacet;
 import org.jboss.forge.addon.gradle.projects.facets.GradleJavaSourceFacet;
@@ -57,6 +59,8 @@ public class GradleProjectProviderImpl implements GradleProjectProvider
       facetFactory.install(project, GradleResourcesFacet.class);
       facetFactory.install(project, GradleJavaCompilerFacet.class);
       facetFactory.install(project, GradleJavaSourceFacet.class);
+      facetFactory.install(project, GradleClassLoaderFacet.class);
+      facetFactory.install(project, GradleBuildPerformanceFacet.class);
 
       try
       {
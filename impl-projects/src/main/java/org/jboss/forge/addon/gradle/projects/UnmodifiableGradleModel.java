@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.forge.addon.gradle.model.GradleDependency;
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradlePlugin;
+import org.jboss.forge.addon.gradle.model.GradleRepository;
+import org.jboss.forge.addon.gradle.model.GradleSourceSet;
+import org.jboss.forge.addon.gradle.model.GradleTask;
+
+/**
+ * Read-only view of a model which is never modified, so it can be shared by all readers without copying. Callers
+ * which want to change the model work on its copy, created by <i>GradleModelBuilder.create(model)</i>.
+ *
+ * @author Adam Wyłuda
+ */
+final class UnmodifiableGradleModel implements GradleModel
+{
+   private final GradleModel model;
+
+   private UnmodifiableGradleModel(GradleModel model)
+   {
+      this.model = model;
+   }
+
+   static GradleModel of(GradleModel model)
+   {
+      return model instanceof UnmodifiableGradleModel ? model : new UnmodifiableGradleModel(model);
+   }
+
+   @Override
+   public String getGroup()
+   {
+      return model.getGroup();
+   }
+
+   @Override
+   public String getName()
+   {
+      return model.getName();
+   }
+
+   @Override
+   public String getVersion()
+   {
+      return model.getVersion();
+   }
+
+   @Override
+   public String getPackaging()
+   {
+      return model.getPackaging();
+   }
+
+   @Override
+   public String getArchiveName()
+   {
+      return model.getArchiveName();
+   }
+
+   @Override
+   public String getProjectPath()
+   {
+      return model.getProjectPath();
+   }
+
+   @Override
+   public String getRootProjectPath()
+   {
+      return model.getRootProjectPath();
+   }
+
+   @Override
+   public String getArchivePath()
+   {
+      return model.getArchivePath();
+   }
+
+   @Override
+   public String getSourceCompatibility()
+   {
+      return model.getSourceCompatibility();
+   }
+
+   @Override
+   public String getTargetCompatiblity()
+   {
+      return model.getTargetCompatiblity();
+   }
+
+   @Override
+   public List<GradleTask> getTasks()
+   {
+      return Collections.unmodifiableList(model.getTasks());
+   }
+
+   @Override
+   public List<GradleTask> getEffectiveTasks()
+   {
+      return Collections.unmodifiableList(model.getEffectiveTasks());
+   }
+
+   @Override
+   public boolean hasEffectiveTask(GradleTask task)
+   {
+      return model.hasEffectiveTask(task);
+   }
+
+   @Override
+   public List<GradleDependency> getDependencies()
+   {
+      return Collections.unmodifiableList(model.getDependencies());
+   }
+
+   @Override
+   public boolean hasDependency(GradleDependency dep)
+   {
+      return model.hasDependency(dep);
+   }
+
+   @Override
+   public List<GradleDependency> getEffectiveDependencies()
+   {
+      return Collections.unmodifiableList(model.getEffectiveDependencies());
+   }
+
+   @Override
+   public boolean hasEffectiveDependency(GradleDependency dependency)
+   {
+      return model.hasEffectiveDependency(dependency);
+   }
+
+   @Override
+   public List<GradleDependency> getManagedDependencies()
+   {
+      return Collections.unmodifiableList(model.getManagedDependencies());
+   }
+
+   @Override
+   public boolean hasManagedDependency(GradleDependency dep)
+   {
+      return model.hasManagedDependency(dep);
+   }
+
+   @Override
+   public List<GradleDependency> getEffectiveManagedDependencies()
+   {
+      return Collections.unmodifiableList(model.getEffectiveManagedDependencies());
+   }
+
+   @Override
+   public boolean hasEffectiveManagedDependency(GradleDependency dependency)
+   {
+      return model.hasEffectiveManagedDependency(dependency);
+   }
+
+   @Override
+   public List<GradlePlugin> getPlugins()
+   {
+      return Collections.unmodifiableList(model.getPlugins());
+   }
+
+   @Override
+   public boolean hasPlugin(GradlePlugin plugin)
+   {
+      return model.hasPlugin(plugin);
+   }
+
+   @Override
+   public List<GradlePlugin> getEffectivePlugins()
+   {
+      return Collections.unmodifiableList(model.getEffectivePlugins());
+   }
+
+   @Override
+   public boolean hasEffectivePlugin(GradlePlugin plugin)
+   {
+      return model.hasEffectivePlugin(plugin);
+   }
+
+   @Override
+   public List<GradleRepository> getRepositories()
+   {
+      return Collections.unmodifiableList(model.getRepositories());
+   }
+
+   @Override
+   public boolean hasRepository(GradleRepository repo)
+   {
+      return model.hasRepository(repo);
+   }
+
+   @Override
+   public List<GradleRepository> getEffectiveRepositories()
+   {
+      return Collections.unmodifiableList(model.getEffectiveRepositories());
+   }
+
+   @Override
+   public boolean hasEffectiveRepository(GradleRepository repo)
+   {
+      return model.hasEffectiveRepository(repo);
+   }
+
+   @Override
+   public Map<String, String> getProperties()
+   {
+      return Collections.unmodifiableMap(model.getProperties());
+   }
+
+   @Override
+   public Map<String, String> getEffectiveProperties()
+   {
+      return Collections.unmodifiableMap(model.getEffectiveProperties());
+   }
+
+   @Override
+   public List<GradleSourceSet> getEffectiveSourceSets()
+   {
+      return Collections.unmodifiableList(model.getEffectiveSourceSets());
+   }
+
+   @Override
+   public String getFingerprint()
+   {
+      return model.getFingerprint();
+   }
+
+   @Override
+   public boolean isNotModified()
+   {
+      return model.isNotModified();
+   }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.facets;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.jboss.forge.addon.facets.AbstractFacet;
+import org.jboss.forge.addon.facets.constraints.FacetConstraint;
+import org.jboss.forge.addon.facets.constraints.FacetConstraints;
+import org.jboss.forge.addon.gradle.model.GradleBuildFingerprint;
+import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
+import org.jboss.forge.addon.gradle.parser.PropertiesSourceUtil;
+import org.jboss.forge.addon.gradle.projects.GradleFacet;
+import org.jboss.forge.addon.projects.Project;
+import org.jboss.forge.addon.projects.ProjectFacet;
+import org.jboss.forge.addon.resource.FileResource;
+import org.jboss.forge.addon.resource.ResourceFactory;
+
+/**
+ * Reads and writes build performance settings in <i>gradle.properties</i> of the root project.
+ *
+ * @author Adam Wyłuda
+ */
+@FacetConstraints({
+         @FacetConstraint(GradleFacet.class)
+})
+public class GradleBuildPerformanceFacet extends AbstractFacet<Project> implements ProjectFacet
+{
+   public static final String PARALLEL = "org.gradle.parallel";
+   public static final String CACHING = "org.gradle.caching";
+   public static final String JVM_ARGS = "org.gradle.jvmargs";
+   public static final String WORKERS_MAX = "org.gradle.workers.max";
+   public static final String CONFIGURE_ON_DEMAND = "org.gradle.configureondemand";
+
+   public static final List<String> SETTINGS = Arrays.asList(
+            PARALLEL, CACHING, JVM_ARGS, WORKERS_MAX, CONFIGURE_ON_DEMAND);
+
+   private static final int CONFIGURE_ON_DEMAND_PROJECT_COUNT = 10;
+   private static final int MIN_HEAP_MB = 512;
+   private static final int MAX_HEAP_MB = 4096;
+   private static final int HEAP_MB_PER_PROJECT = 64;
+   private static final String MAX_HEAP_OPTION = "-Xmx";
+
+   @Inject
+   private ResourceFactory resourceFactory;
+
+   @Override
+   public boolean install()
+   {
+      return true;
+   }
+
+   @Override
+   public boolean isInstalled()
+   {
+      return getFaceted().hasFacet(GradleFacet.class);
+   }
+
+   /**
+    * Returns build performance settings defined in gradle.properties.
+    */
+   public Map<String, String> getSettings()
+   {
+      Map<String, String> settings = new LinkedHashMap<String, String>();
+      Map<String, String> properties = PropertiesSourceUtil.getProperties(getPropertiesSource());
+      for (String key : SETTINGS)
+      {
+         if (properties.containsKey(key))
+         {
+            settings.put(key, properties.get(key));
+         }
+      }
+      return settings;
+   }
+
+   /**
+    * Returns value of the setting, or null if it's not defined.
+    */
+   public String getSetting(String key)
+   {
+      return PropertiesSourceUtil.getProperties(getPropertiesSource()).get(key);
+   }
+
+   /**
+    * Sets value of the setting. Null value removes the setting.
+    */
+   public void setSetting(String key, String value)
+   {
+      setSettings(Collections.singletonMap(key, value));
+   }
+
+   /**
+    * Sets values of multiple settings at once. Null values remove the settings.
+    */
+   public void setSettings(Map<String, String> settings)
+   {
+      String source = getPropertiesSource();
+      for (Map.Entry<String, String> entry : settings.entrySet())
+      {
+         source = entry.getValue() != null
+                  ? PropertiesSourceUtil.setProperty(source, entry.getKey(), entry.getValue())
+                  : PropertiesSourceUtil.removeProperty(source, entry.getKey());
+      }
+
+      FileResource<?> resource = getPropertiesResource();
+      if (!resource.exists())
+      {
+         resource.createNewFile();
+      }
+      resource.setContents(source);
+   }
+
+   /**
+    * Returns recommended settings for the build, basing on number of its projects and available processors. Projects
+    * are counted from settings.gradle, so the build doesn't have to be evaluated. Recommended JVM arguments keep the
+    * configured ones, only maximum heap size may be increased.
+    */
+   public Map<String, String> getRecommendedSettings()
+   {
+      return recommendSettings(getProjectCount(), Runtime.getRuntime().availableProcessors(), getSetting(JVM_ARGS));
+   }
+
+   /**
+    * Returns number of projects in the build: root project and projects included by settings.gradle, together with
+    * their parent projects.
+    */
+   @SuppressWarnings("unchecked")
+   private int getProjectCount()
+   {
+      File settingsScript = new File(getRootDir(), GradleBuildFingerprint.SETTINGS_SCRIPT);
+      FileResource<?> resource = resourceFactory.create(FileResource.class, settingsScript);
+      if (!resource.exists())
+      {
+         return 1;
+      }
+      Set<String> projectPaths = new HashSet<String>();
+      for (String path : GradleSourceUtil.getIncludedProjects(resource.getContents()))
+      {
+         // Including 'a:b' includes also its parent 'a'
+         String[] names = path.startsWith(":") ? path.substring(1).split(":") : path.split(":");
+         StringBuilder projectPath = new StringBuilder();
+         for (String name : names)
+         {
+            projectPath.append(':').append(name);
+            projectPaths.add(projectPath.toString());
+         }
+      }
+      return projectPaths.size() + 1;
+   }
+
+   static Map<String, String> recommendSettings(int projectCount, int processors, String jvmArgs)
+   {
+      Map<String, String> settings = new LinkedHashMap<String, String>();
+      settings.put(PARALLEL, String.valueOf(projectCount > 1 && processors > 1));
+      settings.put(CACHING, "true");
+      settings.put(WORKERS_MAX, String.valueOf(processors));
+      settings.put(CONFIGURE_ON_DEMAND, String.valueOf(projectCount >= CONFIGURE_ON_DEMAND_PROJECT_COUNT));
+      int heap = Math.max(MIN_HEAP_MB, Math.min(MAX_HEAP_MB, MIN_HEAP_MB + projectCount * HEAP_MB_PER_PROJECT));
+      settings.put(JVM_ARGS, mergeMaxHeap(jvmArgs, heap));
+      return settings;
+   }
+
+   /**
+    * Sets maximum heap size in given JVM arguments, keeping other arguments. Larger configured heap is never decreased,
+    * neither is heap size which can't be parsed.
+    */
+   static String mergeMaxHeap(String jvmArgs, int heapMb)
+   {
+      String option = MAX_HEAP_OPTION + heapMb + "m";
+      if (jvmArgs == null || jvmArgs.trim().isEmpty())
+      {
+         return option;
+      }
+
+      // Last occurrence is the one used by JVM
+      int start = -1;
+      int index = jvmArgs.indexOf(MAX_HEAP_OPTION);
+      while (index >= 0)
+      {
+         if (index == 0 || Character.isWhitespace(jvmArgs.charAt(index - 1)))
+         {
+            start = index;
+         }
+         index = jvmArgs.indexOf(MAX_HEAP_OPTION, index + 1);
+      }
+      if (start < 0)
+      {
+         return jvmArgs.trim() + " " + option;
+      }
+
+      int end = start;
+      while (end < jvmArgs.length() && !Character.isWhitespace(jvmArgs.charAt(end)))
+      {
+         end++;
+      }
+      long configuredMb = parseSizeMb(jvmArgs.substring(start + MAX_HEAP_OPTION.length(), end));
+      if (configuredMb < 0 || configuredMb >= heapMb)
+      {
+         return jvmArgs;
+      }
+      return jvmArgs.substring(0, start) + option + jvmArgs.substring(end);
+   }
+
+   /**
+    * Returns size given in JVM option format (e.g. 512m or 2g) in megabytes, or -1 if it can't be parsed.
+    */
+   private static long parseSizeMb(String size)
+   {
+      if (size.isEmpty())
+      {
+         return -1;
+      }
+      char unit = Character.toLowerCase(size.charAt(size.length() - 1));
+      String number = Character.isDigit(unit) ? size : size.substring(0, size.length() - 1);
+      long value;
+      try
+      {
+         value = Long.parseLong(number);
+      }
+      catch (NumberFormatException e)
+      {
+         return -1;
+      }
+      switch (unit)
+      {
+      case 't':
+         return value * 1024 * 1024;
+      case 'g':
+         return value * 1024;
+      case 'm':
+         return value;
+      case 'k':
+         return value / 1024;
+      default:
+         return Character.isDigit(unit) ? value / (1024 * 1024) : -1;
+      }
+   }
+
+   /**
+    * Returns gradle.properties of the root project, which may not exist yet.
+    */
+   @SuppressWarnings("unchecked")
+   public FileResource<?> getPropertiesResource()
+   {
+      return resourceFactory.create(FileResource.class,
+               new File(getRootDir(), GradleBuildFingerprint.GRADLE_PROPERTIES));
+   }
+
+   private File getRootDir()
+   {
+      return GradleBuildFingerprint.findRootDir(new File(getFaceted().getRoot().getFullyQualifiedName()));
+   }
+
+   private String getPropertiesSource()
+   {
+      FileResource<?> resource = getPropertiesResource();
+      return resource.exists() ? resource.getContents() : "";
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.facets;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.jboss.forge.addon.facets.AbstractFacet;
+import org.jboss.forge.addon.facets.constraints.FacetConstraint;
+import org.jboss.forge.addon.facets.constraints.FacetConstraints;
+import org.jboss.forge.addon.gradle.model.GradleSourceSet;
+import org.jboss.forge.addon.gradle.projects.GradleFacet;
+import org.jboss.forge.addon.gradle.projects.GradleModelStore;
+import org.jboss.forge.addon.projects.Project;
+import org.jboss.forge.addon.projects.facets.ClassLoaderFacet;
+
+/**
+ * Provides resolved classpaths of the project source sets. Classpaths are part of the effective model kept by
+ * {@link GradleModelStore}, so they are evaluated by Gradle only when the model is loaded.
+ *
+ * @author Adam Wyłuda
+ */
+@FacetConstraints({
+         @FacetConstraint(GradleFacet.class)
+})
+public class GradleClassLoaderFacet extends AbstractFacet<Project> implements ClassLoaderFacet
+{
+   @Inject
+   private GradleModelStore modelStore;
+
+   @Override
+   public boolean install()
+   {
+      return true;
+   }
+
+   @Override
+   public boolean isInstalled()
+   {
+      return getFaceted().hasFacet(GradleFacet.class);
+   }
+
+   /**
+    * Returns class loader of the main source set runtime classpath.
+    */
+   @Override
+   public URLClassLoader getClassLoader()
+   {
+      List<String> classpath = getRuntimeClasspath("main");
+      URL[] urls = new URL[classpath.size()];
+      try
+      {
+         for (int i = 0; i < urls.length; i++)
+         {
+            urls[i] = new File(classpath.get(i)).toURI().toURL();
+         }
+      }
+      catch (MalformedURLException e)
+      {
+         throw new IllegalStateException(e);
+      }
+      return new URLClassLoader(urls);
+   }
+
+   /**
+    * Returns absolute paths of compile classpath of the source set with given name.
+    */
+   public List<String> getCompileClasspath(String sourceSetName)
+   {
+      return getSourceSet(sourceSetName).getCompileClasspath();
+   }
+
+   /**
+    * Returns absolute paths of runtime classpath of the source set with given name.
+    */
+   public List<String> getRuntimeClasspath(String sourceSetName)
+   {
+      return getSourceSet(sourceSetName).getRuntimeClasspath();
+   }
+
+   private GradleSourceSet getSourceSet(String name)
+   {
+      File projectDir = new File(getFaceted().getRoot().getFullyQualifiedName());
+      return GradleResourceUtil.findSourceSetNamed(modelStore.getModel(projectDir).getEffectiveSourceSets(), name);
+   }
+}
@@ -29,6 +29,7 @@ import org.jboss.forge.addon.facets.AbstractFacet;
 import org.jboss.forge.addon.facets.constraints.FacetConstraint;
 import org.jboss.forge.addon.facets.constraints.FacetConstraints;
 import org.jboss.forge.addon.gradle.projects.GradleFacet;
+import org.jboss.forge.addon.gradle.projects.GradleModelSnapshot;
 import org.jboss.forge.addon.gradle.model.GradleDependency;
 import org.jboss.forge.addon.gradle.model.GradleDependencyBuilder;
 import org.jboss.forge.addon.gradle.model.GradleDependencyConfiguration;
@@ -66,7 +67,8 @@ public class GradleDependencyFacet extends AbstractFacet<Project> implements Dep
    @Override
    public void addDirectDependency(Dependency dep)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
 
       Dependency newDep = null;
       // If dependency has no version set, and there is no corresponding dep in managed list
@@ -82,7 +84,7 @@ public class GradleDependencyFacet extends AbstractFacet<Project> implements Dep
       }
       model.addDependency(forgeDepToGradleDep(newDep));
 
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    @Override
@@ -99,7 +101,8 @@ public class GradleDependencyFacet extends AbstractFacet<Project> implements Dep
    {
       getGradleFacet().installForgeLibrary();
       
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
 
       Dependency newDep = null;
       // First try to enforce version using imported dependencies (like Maven do)
@@ -116,15 +119,16 @@ public class GradleDependencyFacet extends AbstractFacet<Project> implements Dep
          model.addDependency(forgeDepToGradleDep(DependencyBuilder.create(newDep).setVersion(null)));
       }
 
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    @Override
    public void addRepository(String name, String url)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.addRepository(GradleRepositoryBuilder.create().setName(name).setUrl(url));
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    @Override
@@ -235,17 +239,19 @@ public class GradleDependencyFacet extends AbstractFacet<Project> implements Dep
    @Override
    public void removeDependency(Dependency dependency)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.removeDependency(forgeDepToGradleDep(dependency));
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    @Override
    public void removeManagedDependency(Dependency managedDependency)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.removeManagedDependency(forgeDepToGradleDep(managedDependency));
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    @Override
@@ -253,10 +259,11 @@ public class GradleDependencyFacet extends AbstractFacet<Project> implements Dep
    {
       DependencyRepository repo = null;
 
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       repo = findRepositoryByUrl(getRepositories(), url);
       model.removeRepository(GradleRepositoryBuilder.create().setUrl(url));
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
 
       return repo;
    }
@@ -10,6 +10,7 @@ import org.jboss.forge.addon.facets.AbstractFacet;
 import org.jboss.forge.addon.facets.constraints.FacetConstraint;
 import org.jboss.forge.addon.facets.constraints.FacetConstraints;
 import org.jboss.forge.addon.gradle.projects.GradleFacet;
+import org.jboss.forge.addon.gradle.projects.GradleModelSnapshot;
 import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
 import org.jboss.forge.addon.gradle.model.GradlePluginBuilder;
 import org.jboss.forge.addon.gradle.model.GradlePluginType;
@@ -29,11 +30,12 @@ public class GradleJavaCompilerFacet extends AbstractFacet<Project> implements J
    {
       if (!this.isInstalled())
       {
-         GradleModelBuilder model = GradleModelBuilder.create(getFaceted().getFacet(GradleFacet.class).getModel());
+         GradleModelSnapshot base = getFaceted().getFacet(GradleFacet.class).getModelSnapshot();
+         GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
          if (!model.hasPlugin(GradlePluginBuilder.create(GradlePluginType.JAVA)))
          {
             model.addPlugin(GradlePluginBuilder.create(GradlePluginType.JAVA));
-            getFaceted().getFacet(GradleFacet.class).setModel(model);
+            getFaceted().getFacet(GradleFacet.class).setModel(base, model);
          }
       }
       return isInstalled();
@@ -49,17 +51,19 @@ public class GradleJavaCompilerFacet extends AbstractFacet<Project> implements J
    @Override
    public void setSourceCompilerVersion(CompilerVersion version)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.setSourceCompatibility(version.toString());
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    @Override
    public void setTargetCompilerVersion(CompilerVersion version)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.setTargetCompatibility(version.toString());
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    @Override
@@ -12,6 +12,7 @@ import org.jboss.forge.addon.facets.AbstractFacet;
 import org.jboss.forge.addon.facets.constraints.FacetConstraint;
 import org.jboss.forge.addon.facets.constraints.FacetConstraints;
 import org.jboss.forge.addon.gradle.projects.GradleFacet;
+import org.jboss.forge.addon.gradle.projects.GradleModelSnapshot;
 import org.jboss.forge.addon.gradle.projects.GradleProjectProvider;
 import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
 import org.jboss.forge.addon.projects.Project;
@@ -59,9 +60,10 @@ public class GradleMetadataFacet extends AbstractFacet<Project> implements Metad
    @Override
    public GradleMetadataFacet setProjectName(String name)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.setName(name);
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
       return this;
    }
 
@@ -80,9 +82,10 @@ public class GradleMetadataFacet extends AbstractFacet<Project> implements Metad
    @Override
    public GradleMetadataFacet setTopLevelPackage(String groupId)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.setGroup(groupId);
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
       return this;
    }
 
@@ -101,9 +104,10 @@ public class GradleMetadataFacet extends AbstractFacet<Project> implements Metad
    @Override
    public GradleMetadataFacet setProjectVersion(String version)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.setVersion(version);
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
       return this;
    }
 
@@ -141,9 +145,10 @@ public class GradleMetadataFacet extends AbstractFacet<Project> implements Metad
    @Override
    public GradleMetadataFacet setDirectProperty(String name, String value)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.setProperty(name, value);
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
       return this;
    }
 
@@ -152,10 +157,11 @@ public class GradleMetadataFacet extends AbstractFacet<Project> implements Metad
    {
       String property = null;
 
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       property = model.getProperties().get(name);
       model.removeProperty(name);
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
 
       return property;
    }
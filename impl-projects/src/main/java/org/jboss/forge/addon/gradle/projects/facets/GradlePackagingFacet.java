@@ -11,6 +11,7 @@ import org.jboss.forge.addon.facets.AbstractFacet;
 import org.jboss.forge.addon.facets.constraints.FacetConstraint;
 import org.jboss.forge.addon.facets.constraints.FacetConstraints;
 import org.jboss.forge.addon.gradle.projects.GradleFacet;
+import org.jboss.forge.addon.gradle.projects.GradleModelSnapshot;
 import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
 import org.jboss.forge.addon.projects.Project;
 import org.jboss.forge.addon.projects.building.BuildException;
@@ -47,9 +48,10 @@ public class GradlePackagingFacet extends AbstractFacet<Project> implements Pack
    @Override
    public void setPackagingType(String type)
    {
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.setPackaging(type);
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    @Override
@@ -95,9 +97,10 @@ public class GradlePackagingFacet extends AbstractFacet<Project> implements Pack
    {
       getGradleFacet().installForgeLibrary();
 
-      GradleModelBuilder model = GradleModelBuilder.create(getGradleFacet().getModel());
+      GradleModelSnapshot base = getGradleFacet().getModelSnapshot();
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
       model.setArchiveName(finalName);
-      getGradleFacet().setModel(model);
+      getGradleFacet().setModel(base, model);
    }
 
    private GradleFacet getGradleFacet()
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.ui;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.jboss.forge.addon.gradle.projects.facets.GradleBuildPerformanceFacet;
+import org.jboss.forge.addon.projects.Project;
+import org.jboss.forge.addon.projects.ProjectFactory;
+import org.jboss.forge.addon.projects.ui.AbstractProjectCommand;
+import org.jboss.forge.addon.ui.context.UIBuilder;
+import org.jboss.forge.addon.ui.context.UIContext;
+import org.jboss.forge.addon.ui.context.UIExecutionContext;
+import org.jboss.forge.addon.ui.input.UIInput;
+import org.jboss.forge.addon.ui.metadata.UICommandMetadata;
+import org.jboss.forge.addon.ui.metadata.WithAttributes;
+import org.jboss.forge.addon.ui.result.Result;
+import org.jboss.forge.addon.ui.result.Results;
+import org.jboss.forge.addon.ui.util.Categories;
+import org.jboss.forge.addon.ui.util.Metadata;
+
+/**
+ * Recommends build performance settings basing on project count and available processors, and optionally writes them
+ * to <i>gradle.properties</i>.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleBuildPerformanceCommand extends AbstractProjectCommand
+{
+   @Inject
+   private ProjectFactory projectFactory;
+
+   @Inject
+   @WithAttributes(label = "Apply", description = "Write recommended settings to gradle.properties",
+            defaultValue = "false")
+   private UIInput<Boolean> apply;
+
+   @Override
+   public UICommandMetadata getMetadata(UIContext context)
+   {
+      return Metadata.forCommand(getClass())
+               .name("Gradle: Recommend Build Settings")
+               .description("Recommends Gradle build performance settings")
+               .category(Categories.create("Gradle"));
+   }
+
+   @Override
+   public boolean isEnabled(UIContext context)
+   {
+      return super.isEnabled(context)
+               && getSelectedProject(context).hasFacet(GradleBuildPerformanceFacet.class);
+   }
+
+   @Override
+   public void initializeUi(UIBuilder builder) throws Exception
+   {
+      builder.add(apply);
+   }
+
+   @Override
+   public Result execute(UIExecutionContext context) throws Exception
+   {
+      Project project = getSelectedProject(context);
+      GradleBuildPerformanceFacet facet = project.getFacet(GradleBuildPerformanceFacet.class);
+
+      Map<String, String> current = facet.getSettings();
+      Map<String, String> recommended = facet.getRecommendedSettings();
+
+      StringBuilder message = new StringBuilder();
+      for (Map.Entry<String, String> entry : recommended.entrySet())
+      {
+         String currentValue = current.get(entry.getKey());
+         message.append(entry.getKey()).append('=').append(entry.getValue());
+         if (currentValue != null && !currentValue.equals(entry.getValue()))
+         {
+            message.append(" (currently ").append(currentValue).append(')');
+         }
+         message.append('\n');
+      }
+
+      if (Boolean.TRUE.equals(apply.getValue()))
+      {
+         facet.setSettings(recommended);
+         return Results.success("Build settings written to " + facet.getPropertiesResource().getFullyQualifiedName()
+                  + ":\n" + message);
+      }
+      return Results.success("Recommended build settings:\n" + message);
+   }
+
+   @Override
+   protected boolean isProjectRequired()
+   {
+      return true;
+   }
+
+   @Override
+   protected ProjectFactory getProjectFactory()
+   {
+      return projectFactory;
+   }
+}
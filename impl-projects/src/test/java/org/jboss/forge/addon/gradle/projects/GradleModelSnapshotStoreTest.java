@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.model.GradleSourceSet;
+import org.jboss.forge.addon.gradle.model.GradleSourceSetBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleModelSnapshotStoreTest
+{
+   private static final String FINGERPRINT = "0123456789abcdef";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private String userHome;
+   private GradleModelSnapshotStore store;
+
+   @Before
+   public void setUp()
+   {
+      // Snapshots are stored in Forge directory in user home
+      userHome = System.getProperty("user.home");
+      System.setProperty("user.home", folder.getRoot().getAbsolutePath());
+      store = new GradleModelSnapshotStore();
+   }
+
+   @After
+   public void tearDown()
+   {
+      System.setProperty("user.home", userHome);
+   }
+
+   @Test
+   public void testSaveAndLoad()
+   {
+      GradleModel model = GradleModelBuilder.create()
+               .setName("project")
+               .setFingerprint(FINGERPRINT)
+               .setProperty("key", "value")
+               .setEffectiveSourceSets(Collections.<GradleSourceSet> singletonList(
+                        GradleSourceSetBuilder.create().setName("main")));
+      store.save(model, 42);
+
+      GradleModelSnapshotStore.StoredModel stored = store.load(FINGERPRINT);
+      assertNotNull(stored);
+      assertEquals(42, stored.getTimestamp());
+      assertEquals("project", stored.getModel().getName());
+      assertEquals("value", stored.getModel().getProperties().get("key"));
+      assertEquals("main", stored.getModel().getEffectiveSourceSets().get(0).getName());
+
+      assertNull(store.load("fedcba9876543210"));
+   }
+
+   @Test
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testRejectsClassesOutsideOfModel()
+   {
+      // Valid model, except for a value which can't be a part of it
+      Map properties = new HashMap();
+      properties.put("key", new AtomicLong());
+      store.save(GradleModelBuilder.create().setFingerprint(FINGERPRINT).setProperties(properties), 42);
+      File snapshot = new File(folder.getRoot(), ".forge/gradle/models/" + FINGERPRINT + ".ser");
+      assertTrue(snapshot.exists());
+
+      assertNull(store.load(FINGERPRINT));
+      assertFalse(snapshot.exists());
+   }
+}
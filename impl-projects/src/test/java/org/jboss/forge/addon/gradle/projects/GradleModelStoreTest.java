@@ -0,0 +1,384 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.model.GradleModelDeltaBuilder;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModelBuilder;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelLoadUtil;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelMergeUtil;
+import org.jboss.forge.addon.resource.FileResource;
+import org.jboss.forge.addon.resource.ResourceFactory;
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleModelStoreTest
+{
+   private static final String FINGERPRINT = "fingerprint";
+   private static final String REFRESHED_FINGERPRINT = "refreshed";
+   private static final int WRITERS = 4;
+   private static final int READERS = 4;
+   private static final int COMMITS_PER_WRITER = 25;
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private File projectDir;
+   private GradleModelStore store;
+   // Gradle builds by method of the manager
+   private final Map<String, AtomicInteger> gradleRuns = new ConcurrentHashMap<>();
+   private final Map<File, GradleBuildWatcher.Listener> listeners = new ConcurrentHashMap<>();
+   // Holds back deltas until released
+   private volatile CountDownLatch deltaBlocker = new CountDownLatch(0);
+   // Build script "on disk", changed only by model writers
+   private volatile String script = "apply plugin: 'java'\n";
+
+   @Before
+   public void setUp() throws Exception
+   {
+      projectDir = folder.newFolder("project");
+      store = new GradleModelStore();
+      inject("manager", stub(GradleManager.class, new InvocationHandler()
+      {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args) throws Exception
+         {
+            gradleRuns.putIfAbsent(method.getName(), new AtomicInteger());
+            gradleRuns.get(method.getName()).incrementAndGet();
+            switch (method.getName())
+            {
+            case "buildModel":
+               return model(new File((String) args[0]).getName(), FINGERPRINT);
+            case "buildModelDelta":
+               deltaBlocker.await();
+               String fingerprint = (String) args[3];
+               return GradleModelDeltaBuilder.create().setBaseFingerprint(fingerprint).setFingerprint(fingerprint);
+            case "buildMultiProjectModel":
+               List<GradleModel> models = new ArrayList<>();
+               for (File dir : new File((String) args[0]).listFiles())
+               {
+                  if (dir.isDirectory())
+                  {
+                     models.add(model(dir.getName(), REFRESHED_FINGERPRINT));
+                  }
+               }
+               return GradleMultiProjectModelBuilder.create().setProjectModels(models);
+            default:
+               throw new UnsupportedOperationException(method.getName());
+            }
+         }
+      }));
+      inject("resourceFactory", stub(ResourceFactory.class, new InvocationHandler()
+      {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            return buildScriptResource();
+         }
+      }));
+      inject("addon", stub(Addon.class, new InvocationHandler()
+      {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            return AddonId.from("org.jboss.forge.addon:gradle", "1.0.0");
+         }
+      }));
+      inject("initScriptProvider", new GradleInitScriptProvider()
+      {
+         @Override
+         public synchronized String getInitScriptLocation()
+         {
+            return "forge-plugin.gradle";
+         }
+      });
+      inject("snapshotStore", new GradleModelSnapshotStore()
+      {
+         @Override
+         public StoredModel load(String fingerprint)
+         {
+            return null;
+         }
+
+         @Override
+         public void save(GradleModel model, long timestamp)
+         {
+         }
+      });
+      inject("buildWatcher", new GradleBuildWatcher()
+      {
+         @Override
+         public synchronized void register(File projectDir, Listener listener)
+         {
+            listeners.put(projectDir, listener);
+         }
+
+         @Override
+         public void notifyChanged(File projectDir)
+         {
+         }
+      });
+   }
+
+   @After
+   public void tearDown()
+   {
+      store.stop();
+   }
+
+   @Test
+   public void testConcurrentCommitsAndReads() throws Exception
+   {
+      ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+      final CountDownLatch start = new CountDownLatch(1);
+      final AtomicBoolean writing = new AtomicBoolean(true);
+      try
+      {
+         List<Future<?>> writers = new ArrayList<>();
+         for (int i = 0; i < WRITERS; i++)
+         {
+            final int writer = i;
+            writers.add(executor.submit(new Callable<Void>()
+            {
+               @Override
+               public Void call() throws Exception
+               {
+                  start.await();
+                  for (int commit = 0; commit < COMMITS_PER_WRITER; commit++)
+                  {
+                     commitProperty("w" + writer + "c" + commit);
+                  }
+                  return null;
+               }
+            }));
+         }
+         List<Future<?>> readers = new ArrayList<>();
+         for (int i = 0; i < READERS; i++)
+         {
+            readers.add(executor.submit(new Callable<Void>()
+            {
+               @Override
+               public Void call() throws Exception
+               {
+                  start.await();
+                  long lastVersion = 0;
+                  int lastSize = 0;
+                  while (writing.get())
+                  {
+                     GradleModelSnapshot snapshot = store.getModel(projectDir, 1, TimeUnit.HOURS);
+                     int size = snapshot.getModel().getProperties().size();
+                     assertTrue("Version went back", snapshot.getVersion() >= lastVersion);
+                     assertTrue("Committed property disappeared", snapshot.getVersion() > lastVersion
+                              ? size >= lastSize : size == lastSize);
+                     lastVersion = snapshot.getVersion();
+                     lastSize = size;
+
+                     // Readers share read-only views of the snapshot
+                     assertFalse(snapshot.getModel() instanceof GradleModelBuilder);
+                     try
+                     {
+                        store.getModel(projectDir).getProperties().put("reader", "value");
+                        fail("Model of the store was modified");
+                     }
+                     catch (UnsupportedOperationException e)
+                     {
+                     }
+                  }
+                  return null;
+               }
+            }));
+         }
+
+         start.countDown();
+         for (Future<?> writer : writers)
+         {
+            writer.get(30, TimeUnit.SECONDS);
+         }
+         writing.set(false);
+         for (Future<?> reader : readers)
+         {
+            reader.get(30, TimeUnit.SECONDS);
+         }
+      }
+      finally
+      {
+         writing.set(false);
+         executor.shutdownNow();
+      }
+
+      // Every committed property is both in the script and in the model
+      GradleModelSnapshot snapshot = store.getModel(projectDir, 1, TimeUnit.HOURS);
+      Map<String, String> scriptProperties = GradleModelLoadUtil.load(GradleModelBuilder.create(), script)
+               .getProperties();
+      assertEquals(WRITERS * COMMITS_PER_WRITER, scriptProperties.size());
+      assertEquals(WRITERS * COMMITS_PER_WRITER, snapshot.getModel().getProperties().size());
+      for (int writer = 0; writer < WRITERS; writer++)
+      {
+         for (int commit = 0; commit < COMMITS_PER_WRITER; commit++)
+         {
+            assertEquals("value", scriptProperties.get("w" + writer + "c" + commit));
+            assertEquals("value", snapshot.getModel().getProperties().get("w" + writer + "c" + commit));
+         }
+      }
+      // Initial load and one version per commit
+      assertEquals(WRITERS * COMMITS_PER_WRITER + 1, snapshot.getVersion());
+      // Loaded once, commits are applied without running Gradle
+      assertEquals(1, runs("buildModel"));
+      assertEquals(0, runs("buildModelDelta"));
+   }
+
+   @Test
+   public void testRefreshesOfBuildAreCoalesced() throws Exception
+   {
+      File rootDir = folder.newFolder("root");
+      new File(rootDir, "settings.gradle").createNewFile();
+      File[] projectDirs = { new File(rootDir, "a"), new File(rootDir, "b"), new File(rootDir, "c") };
+      long[] versions = new long[projectDirs.length];
+      for (int i = 0; i < projectDirs.length; i++)
+      {
+         projectDirs[i].mkdir();
+         versions[i] = store.getModel(projectDirs[i], 1, TimeUnit.HOURS).getVersion();
+      }
+
+      // While refresh of the first project is running, other projects of the build are changed
+      deltaBlocker = new CountDownLatch(1);
+      listener(projectDirs[2]).buildChanged();
+      awaitRuns("buildModelDelta", 1);
+      listener(projectDirs[0]).buildChanged();
+      listener(projectDirs[1]).buildChanged();
+      deltaBlocker.countDown();
+
+      for (int i = 0; i < projectDirs.length; i++)
+      {
+         awaitVersionAbove(projectDirs[i], versions[i]);
+      }
+      // Changed projects are refreshed together by a single build
+      assertEquals(1, runs("buildModelDelta"));
+      assertEquals(1, runs("buildMultiProjectModel"));
+      assertEquals(3, runs("buildModel"));
+   }
+
+   private void commitProperty(String key)
+   {
+      // Other writers may commit between reading the base and committing
+      GradleModelSnapshot base = store.getModelSnapshot(projectDir);
+      GradleModelBuilder model = GradleModelBuilder.create(base.getModel());
+      model.setProperty(key, "value");
+      store.commit(projectDir, base, model, new GradleModelStore.ModelWriter()
+      {
+         @Override
+         public String write(GradleModel currentModel, GradleModel newModel)
+         {
+            script = GradleModelMergeUtil.merge(script, currentModel, newModel);
+            return script;
+         }
+      });
+   }
+
+   private FileResource<?> buildScriptResource()
+   {
+      return stub(FileResource.class, new InvocationHandler()
+      {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            switch (method.getName())
+            {
+            case "exists":
+               return true;
+            case "getContents":
+               return script;
+            default:
+               throw new UnsupportedOperationException(method.getName());
+            }
+         }
+      });
+   }
+
+   private static GradleModel model(String projectName, String fingerprint)
+   {
+      return GradleModelBuilder.create().setGroup("org.example").setName(projectName).setVersion("1.0")
+               .setPackaging("jar").setArchiveName(projectName + "-1.0.jar").setSourceCompatibility("1.7")
+               .setTargetCompatibility("1.7").setProjectPath(":" + projectName).setFingerprint(fingerprint);
+   }
+
+   private int runs(String method)
+   {
+      AtomicInteger runs = gradleRuns.get(method);
+      return runs != null ? runs.get() : 0;
+   }
+
+   private GradleBuildWatcher.Listener listener(File projectDir) throws Exception
+   {
+      GradleBuildWatcher.Listener listener = listeners.get(projectDir.getCanonicalFile());
+      assertNotNull(listener);
+      return listener;
+   }
+
+   private void awaitRuns(String method, int runs) throws InterruptedException
+   {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (runs(method) < runs)
+      {
+         assertTrue("Gradle wasn't run", System.nanoTime() < deadline);
+         Thread.sleep(10);
+      }
+   }
+
+   private void awaitVersionAbove(File projectDir, long version) throws InterruptedException
+   {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (store.getModel(projectDir, 1, TimeUnit.HOURS).getVersion() <= version)
+      {
+         assertTrue("Model wasn't refreshed", System.nanoTime() < deadline);
+         Thread.sleep(10);
+      }
+   }
+
+   private void inject(String name, Object value) throws Exception
+   {
+      Field field = GradleModelStore.class.getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(store, value);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <T> T stub(Class<T> type, InvocationHandler handler)
+   {
+      return (T) Proxy.newProxyInstance(GradleModelStoreTest.class.getClassLoader(), new Class<?>[] { type },
+               handler);
+   }
+}
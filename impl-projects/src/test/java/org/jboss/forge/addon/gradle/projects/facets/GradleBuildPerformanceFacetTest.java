@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.facets;
+
+import static org.jboss.forge.addon.gradle.projects.facets.GradleBuildPerformanceFacet.*;
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleBuildPerformanceFacetTest
+{
+   @Test
+   public void testRecommendSettings()
+   {
+      Map<String, String> single = recommendSettings(1, 4, null);
+      assertEquals(SETTINGS.size(), single.size());
+      assertEquals("false", single.get(PARALLEL));
+      assertEquals("true", single.get(CACHING));
+      assertEquals("4", single.get(WORKERS_MAX));
+      assertEquals("false", single.get(CONFIGURE_ON_DEMAND));
+      assertEquals("-Xmx576m", single.get(JVM_ARGS));
+
+      Map<String, String> multi = recommendSettings(12, 8, "-XX:MaxMetaspaceSize=256m -Xmx1g");
+      assertEquals("true", multi.get(PARALLEL));
+      assertEquals("8", multi.get(WORKERS_MAX));
+      assertEquals("true", multi.get(CONFIGURE_ON_DEMAND));
+      assertEquals("-XX:MaxMetaspaceSize=256m -Xmx1280m", multi.get(JVM_ARGS));
+
+      assertEquals("false", recommendSettings(12, 1, null).get(PARALLEL));
+      assertEquals("-Xmx4096m", recommendSettings(1000, 1, "").get(JVM_ARGS));
+   }
+
+   @Test
+   public void testMergeMaxHeap()
+   {
+      assertEquals("-Xmx1024m", mergeMaxHeap(null, 1024));
+      assertEquals("-Xmx1024m", mergeMaxHeap("  ", 1024));
+
+      // Other arguments are kept
+      assertEquals("-Dfile.encoding=UTF-8 -XX:MaxMetaspaceSize=256m -Xmx1024m",
+               mergeMaxHeap("-Dfile.encoding=UTF-8 -XX:MaxMetaspaceSize=256m", 1024));
+      assertEquals("-Xmx1024m -Dfile.encoding=UTF-8", mergeMaxHeap("-Xmx512m -Dfile.encoding=UTF-8", 1024));
+      assertEquals("-Xms256m -Xmx1024m", mergeMaxHeap("-Xms256m -Xmx256m", 1024));
+
+      // Larger heap is never decreased
+      assertEquals("-Xmx2g -Dfile.encoding=UTF-8", mergeMaxHeap("-Xmx2g -Dfile.encoding=UTF-8", 1024));
+      assertEquals("-Xmx1024m", mergeMaxHeap("-Xmx1024m", 1024));
+      assertEquals("-Xmx4194304k", mergeMaxHeap("-Xmx4194304k", 1024));
+      assertEquals("-Xmx2147483648", mergeMaxHeap("-Xmx2147483648", 1024));
+
+      // Last occurrence is the effective one
+      assertEquals("-Xmx4g -Xmx1024m", mergeMaxHeap("-Xmx4g -Xmx256m", 1024));
+
+      // Heap size which can't be parsed is kept
+      assertEquals("-Xmx${heap}", mergeMaxHeap("-Xmx${heap}", 1024));
+   }
+}
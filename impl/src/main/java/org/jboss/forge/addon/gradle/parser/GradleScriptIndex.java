@@ -0,0 +1,419 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.jarjar.com.google.common.collect.Lists;
+import org.gradle.jarjar.com.google.common.collect.Maps;
+import org.jboss.forge.addon.gradle.model.GradleDependency;
+import org.jboss.forge.addon.gradle.model.GradleDependencyBuilder;
+import org.jboss.forge.addon.gradle.model.GradleDependencyConfiguration;
+import org.jboss.forge.addon.gradle.model.GradlePlugin;
+import org.jboss.forge.addon.gradle.model.GradlePluginBuilder;
+import org.jboss.forge.addon.gradle.model.GradleRepository;
+import org.jboss.forge.addon.gradle.model.GradleRepositoryBuilder;
+import org.jboss.forge.furnace.util.Strings;
+
+/**
+ * Everything {@link GradleSourceUtil} reads from a build script, collected in a single pass over its invocation tree,
+ * together with source elements declaring it.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleScriptIndex
+{
+   /**
+    * Value read from the script and the source element which declares it.
+    */
+   public static class Entry<T>
+   {
+      private final T value;
+      private final SourceCodeElement element;
+
+      private Entry(T value, SourceCodeElement element)
+      {
+         this.value = value;
+         this.element = element;
+      }
+
+      public T getValue()
+      {
+         return value;
+      }
+
+      public SourceCodeElement getElement()
+      {
+         return element;
+      }
+   }
+
+   private final List<Entry<GradleDependency>> dependencies = Lists.newArrayList();
+   private final List<Entry<GradleDependency>> directDependencies = Lists.newArrayList();
+   private final List<Entry<GradleDependency>> managedDependencies = Lists.newArrayList();
+   private final List<Entry<GradlePlugin>> plugins = Lists.newArrayList();
+   private final List<Entry<GradleRepository>> repositories = Lists.newArrayList();
+   private final List<VariableAssignment> variableAssignments;
+   private final Map<String, String> directProperties;
+   private boolean forgeLibraryIncluded;
+
+   private GradleScriptIndex(SimpleGroovyParser parser)
+   {
+      for (InvocationWithMap invocation : parser.getInvocationsWithMap())
+      {
+         visitApply(invocation);
+      }
+      for (InvocationWithClosure block : parser.allInvocationsAtPath("repositories"))
+      {
+         visitRepositories(block);
+      }
+
+      // Dependencies of the project go before dependencies of all projects
+      for (InvocationWithClosure block : parser.allInvocationsAtPath("dependencies"))
+      {
+         visitDependencies(block);
+      }
+      for (InvocationWithClosure block : parser.allInvocationsAtPath("allprojects", "dependencies"))
+      {
+         visitDependencies(block);
+      }
+
+      Map<String, String> properties = Maps.newHashMap();
+      for (VariableAssignment assignment : parser.getVariableAssignments())
+      {
+         if (assignment.getVariable().startsWith(GradleSourceUtil.PROJECT_PROPERTY_PREFIX))
+         {
+            properties.put(assignment.getVariable().substring(GradleSourceUtil.PROJECT_PROPERTY_PREFIX.length()),
+                     assignment.getValue());
+         }
+      }
+      variableAssignments = parser.getVariableAssignments();
+      directProperties = properties;
+   }
+
+   /**
+    * Indexes given source. Values in the index are new objects, so callers may modify them.
+    */
+   public static GradleScriptIndex of(String source)
+   {
+      return new GradleScriptIndex(SimpleGroovyParser.fromSource(source));
+   }
+
+   /**
+    * Returns dependencies declared in <i>dependencies</i> and <i>allprojects { dependencies }</i> closures.
+    */
+   public List<Entry<GradleDependency>> getDependencies()
+   {
+      return Collections.unmodifiableList(dependencies);
+   }
+
+   /**
+    * Returns direct dependencies (declared using <i>direct</i> configuration).
+    */
+   public List<Entry<GradleDependency>> getDirectDependencies()
+   {
+      return Collections.unmodifiableList(directDependencies);
+   }
+
+   /**
+    * Returns managed dependencies (declared using <i>managed</i> configuration).
+    */
+   public List<Entry<GradleDependency>> getManagedDependencies()
+   {
+      return Collections.unmodifiableList(managedDependencies);
+   }
+
+   /**
+    * Returns plugins applied by <i>apply plugin: 'clazz'</i>.
+    */
+   public List<Entry<GradlePlugin>> getPlugins()
+   {
+      return Collections.unmodifiableList(plugins);
+   }
+
+   /**
+    * Returns urls of maven repositories.
+    */
+   public List<Entry<GradleRepository>> getRepositories()
+   {
+      return Collections.unmodifiableList(repositories);
+   }
+
+   /**
+    * Returns top level variable assignments.
+    */
+   public List<VariableAssignment> getVariableAssignments()
+   {
+      return variableAssignments;
+   }
+
+   /**
+    * @see GradleSourceUtil#getDirectProperties(String)
+    */
+   public Map<String, String> getDirectProperties()
+   {
+      return Collections.unmodifiableMap(directProperties);
+   }
+
+   public boolean isForgeLibraryIncluded()
+   {
+      return forgeLibraryIncluded;
+   }
+
+   /**
+    * Returns values of given entries.
+    */
+   public static <T> List<T> values(List<Entry<T>> entries)
+   {
+      List<T> values = Lists.newArrayList();
+      for (Entry<T> entry : entries)
+      {
+         values.add(entry.getValue());
+      }
+      return values;
+   }
+
+   private void visitApply(InvocationWithMap invocation)
+   {
+      if (invocation.getMethodName().equals("apply") || invocation.getMethodName().equals("project.apply"))
+      {
+         Map<String, String> parameters = invocation.getParameters();
+         String plugin = parameters.get("plugin");
+         if (parameters.size() == 1 && plugin != null)
+         {
+            plugins.add(new Entry<GradlePlugin>(GradlePluginBuilder.create().setClazz(plugin), invocation));
+         }
+         if (GradleSourceUtil.FORGE_LIBRARY.equals(parameters.get("from")))
+         {
+            forgeLibraryIncluded = true;
+         }
+      }
+   }
+
+   private void visitRepositories(InvocationWithClosure repositoriesBlock)
+   {
+      for (InvocationWithClosure maven : repositoriesBlock.getInvocationsWithClosure())
+      {
+         if (maven.getMethodName().equals("maven"))
+         {
+            for (InvocationWithString invocation : maven.getInvocationsWithString())
+            {
+               if (invocation.getMethodName().equals("url"))
+               {
+                  repositories.add(new Entry<GradleRepository>(
+                           GradleRepositoryBuilder.create().setUrl(invocation.getString()), invocation));
+               }
+            }
+         }
+      }
+   }
+
+   private void visitDependencies(InvocationWithClosure block)
+   {
+      for (InvocationWithString invocation : block.getInvocationsWithString())
+      {
+         if (isDependencyInvocation(invocation))
+         {
+            dependencies.add(new Entry<GradleDependency>(dependencyFromInvocation(invocation), invocation));
+         }
+      }
+
+      for (InvocationWithMap invocation : block.getInvocationsWithMap())
+      {
+         if (isDependencyInvocation(invocation))
+         {
+            dependencies.add(new Entry<GradleDependency>(dependencyFromInvocation(invocation), invocation));
+         }
+         if (invocation.getMethodName().equals(GradleSourceUtil.DIRECT_CONFIG))
+         {
+            Map<String, String> params = invocation.getParameters();
+            GradleDependency dep = GradleDependencyBuilder.create()
+                     .setGroup(params.get("group"))
+                     .setName(params.get("name"))
+                     .setConfiguration(GradleDependencyConfiguration.DIRECT);
+            directDependencies.add(new Entry<GradleDependency>(dep, invocation));
+         }
+         if (invocation.getMethodName().equals(GradleSourceUtil.MANAGED_CONFIG))
+         {
+            managedDependencies.add(new Entry<GradleDependency>(managedDependencyFromInvocation(invocation),
+                     invocation));
+         }
+      }
+
+      for (InvocationWithClosure invocation : block.getInvocationsWithClosure())
+      {
+         if (isDependencyInvocation(invocation))
+         {
+            dependencies.add(new Entry<GradleDependency>(dependencyFromInvocation(invocation), invocation));
+         }
+         if (invocation.getMethodName().equals(GradleSourceUtil.MANAGED_CONFIG))
+         {
+            managedDependencies.add(new Entry<GradleDependency>(managedDependencyFromInvocation(invocation),
+                     invocation));
+         }
+      }
+   }
+
+   private static GradleDependency dependencyFromInvocation(InvocationWithString invocation)
+   {
+      return GradleDependencyBuilder.create(invocation.getMethodName(), invocation.getString());
+   }
+
+   private static GradleDependency dependencyFromInvocation(InvocationWithMap invocation)
+   {
+      return dependencyFromMap(invocation.getMethodName(), invocation.getParameters());
+   }
+
+   private static GradleDependency dependencyFromInvocation(InvocationWithClosure invocation)
+   {
+      GradleDependency gradleDep = null;
+      if (!Strings.isNullOrEmpty(invocation.getStringParameter()))
+      {
+         gradleDep = GradleDependencyBuilder.create(invocation.getMethodName(), invocation.getStringParameter());
+      }
+      else
+      {
+         gradleDep = dependencyFromMap(invocation.getMethodName(), invocation.getMapParameter());
+      }
+
+      gradleDep = loadDependencyConfiguration(gradleDep, invocation);
+
+      return gradleDep;
+   }
+
+   private static GradleDependency managedDependencyFromInvocation(InvocationWithMap invocation)
+   {
+      Map<String, String> map = Maps.newHashMap(invocation.getParameters());
+      String config = map.remove("configuration");
+      return dependencyFromMap(config, map);
+   }
+
+   private static GradleDependency managedDependencyFromInvocation(InvocationWithClosure invocation)
+   {
+      Map<String, String> map = Maps.newHashMap(invocation.getMapParameter());
+      String config = map.remove("configuration");
+
+      GradleDependency gradleDep = dependencyFromMap(config, map);
+      gradleDep = loadDependencyConfiguration(gradleDep, invocation);
+
+      return gradleDep;
+   }
+
+   private static GradleDependency loadDependencyConfiguration(GradleDependency dep, InvocationWithClosure invocation)
+   {
+      GradleDependencyBuilder builder = GradleDependencyBuilder.create(dep);
+
+      // Search for excludes
+      List<GradleDependency> excludes = Lists.newArrayList();
+      for (InvocationWithMap mapInvocation : invocation.getInvocationsWithMap())
+      {
+         if (mapInvocation.getMethodName().equals("exclude"))
+         {
+            String group = mapInvocation.getParameters().get("group");
+            String module = mapInvocation.getParameters().get("module");
+
+            // If group is not set then by default it uses dep group
+            if (Strings.isNullOrEmpty(group))
+            {
+               group = dep.getGroup();
+            }
+
+            excludes.add(GradleDependencyBuilder.create().setGroup(group).setName(module));
+         }
+      }
+      builder.setExcludedDependencies(excludes);
+
+      return builder;
+   }
+
+   private static GradleDependency dependencyFromMap(String configurationName, Map<String, String> params)
+   {
+      String group = params.get("group");
+      String name = params.get("name");
+      String version = params.get("version");
+
+      String classifier = params.get("classifier");
+      if (Strings.isNullOrEmpty(classifier))
+      {
+         classifier = "";
+      }
+
+      String packaging = params.get("ext");
+      if (Strings.isNullOrEmpty(packaging))
+      {
+         packaging = "jar";
+      }
+
+      return GradleDependencyBuilder.create().setConfigurationName(configurationName)
+               .setGroup(group).setName(name).setVersion(version)
+               .setClassifier(classifier).setPackaging(packaging);
+   }
+
+   private static boolean isDependencyInvocation(InvocationWithString invocation)
+   {
+      return isGradleDependencyConfiguration(invocation.getMethodName()) &&
+               isGradleString(invocation.getString());
+   }
+
+   private static boolean isDependencyInvocation(InvocationWithMap invocation)
+   {
+      return isGradleDependencyConfiguration(invocation.getMethodName()) &&
+               isDependencyMap(invocation.getParameters());
+   }
+
+   private static boolean isDependencyInvocation(InvocationWithClosure invocation)
+   {
+      if (!isGradleDependencyConfiguration(invocation.getMethodName()))
+      {
+         return false;
+      }
+      if (!Strings.isNullOrEmpty(invocation.getStringParameter()) &&
+               isGradleString(invocation.getStringParameter()))
+      {
+         return true;
+      }
+      if (invocation.getMapParameter() != null && !invocation.getMapParameter().isEmpty() &&
+               isDependencyMap(invocation.getMapParameter()))
+      {
+         return true;
+      }
+      return false;
+   }
+
+   private static boolean isDependencyMap(Map<String, String> params)
+   {
+      return params.containsKey("group") && params.containsKey("name") && params.containsKey("version");
+   }
+
+   private static boolean isGradleDependencyConfiguration(String configName)
+   {
+      for (GradleDependencyConfiguration config : GradleDependencyConfiguration.values())
+      {
+         if (!Strings.isNullOrEmpty(config.getName()) && config.getName().equals(configName))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static boolean isGradleString(String string)
+   {
+      try
+      {
+         GradleDependencyBuilder.create("", string);
+         return true;
+      }
+      catch (Exception ex)
+      {
+         return false;
+      }
+   }
+}
@@ -10,15 +10,15 @@ import org.gradle.jarjar.com.google.common.base.Joiner;
 import org.gradle.jarjar.com.google.common.collect.Lists;
 import org.gradle.jarjar.com.google.common.collect.Maps;
 import org.jboss.forge.addon.gradle.model.GradleDependency;
-import org.jboss.forge.addon.gradle.model.GradleDependencyBuilder;
 import org.jboss.forge.addon.gradle.model.GradleDependencyConfiguration;
 import org.jboss.forge.addon.gradle.model.GradlePlugin;
-import org.jboss.forge.addon.gradle.model.GradlePluginBuilder;
 import org.jboss.forge.addon.gradle.model.GradleRepository;
-import org.jboss.forge.addon.gradle.model.GradleRepositoryBuilder;
 import org.jboss.forge.addon.gradle.projects.exceptions.UnremovableElementException;
 import org.jboss.forge.furnace.util.Strings;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +41,8 @@ public class GradleSourceUtil
    public static final String DIRECT_CONFIG = GradleDependencyConfiguration.DIRECT.getName();
 
    public static final String ARCHIVE_NAME_METHOD = "archiveName";
+   public static final String INCLUDE_BUILD_METHOD = "includeBuild";
+   private static final List<String> INCLUDE_PROJECT_METHODS = Arrays.asList("include", "includeFlat");
 
    public static final String PROJECT_PROPERTY_PREFIX = "ext.";
 
@@ -60,6 +62,110 @@ public class GradleSourceUtil
       return source;
    }
 
+   /**
+    * Returns paths of the builds included by <i>includeBuild 'path'</i> (optionally followed by configuration
+    * closure) in given settings script, in the order they are included.
+    */
+   public static List<String> getIncludedBuilds(String source)
+   {
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      List<SourceCodeElement> invocations = Lists.newArrayList();
+      for (InvocationWithString invocation : parser.getInvocationsWithString())
+      {
+         if (invocation.getMethodName().equals(INCLUDE_BUILD_METHOD))
+         {
+            invocations.add(invocation);
+         }
+      }
+      for (InvocationWithClosure invocation : parser.getInvocationsWithClosure())
+      {
+         if (INCLUDE_BUILD_METHOD.equals(invocation.getMethodName()) && invocation.getStringParameter() != null)
+         {
+            invocations.add(invocation);
+         }
+      }
+      Collections.sort(invocations, new Comparator<SourceCodeElement>()
+      {
+         @Override
+         public int compare(SourceCodeElement first, SourceCodeElement second)
+         {
+            return Integer.compare(first.getStartPosition(), second.getStartPosition());
+         }
+      });
+
+      List<String> builds = Lists.newArrayList();
+      for (SourceCodeElement invocation : invocations)
+      {
+         builds.add(invocation instanceof InvocationWithString ? ((InvocationWithString) invocation).getString()
+                  : ((InvocationWithClosure) invocation).getStringParameter());
+      }
+      return builds;
+   }
+
+   /**
+    * Returns paths of the projects included by <i>include</i> and <i>includeFlat</i> in given settings script, in
+    * the order they are included. Unlike the parse tree, it understands also statements including several projects at
+    * once, like <i>include 'a', 'b'</i>.
+    */
+   public static List<String> getIncludedProjects(String source)
+   {
+      List<String> projects = Lists.newArrayList();
+      List<GroovyDslLexer.Token> tokens;
+      try
+      {
+         tokens = GroovyDslLexer.tokenize(source);
+      }
+      catch (GroovyDslLexer.UnsupportedSyntaxException e)
+      {
+         // Only statements including a single project can be recognized
+         for (InvocationWithString invocation : SimpleGroovyParser.fromSource(source).getInvocationsWithString())
+         {
+            if (INCLUDE_PROJECT_METHODS.contains(invocation.getMethodName()))
+            {
+               projects.add(invocation.getString());
+            }
+         }
+         return projects;
+      }
+
+      for (int i = 0; i < tokens.size(); i++)
+      {
+         GroovyDslLexer.Token token = tokens.get(i);
+         if (token.type != GroovyDslLexer.TokenType.IDENTIFIER || !INCLUDE_PROJECT_METHODS.contains(token.text)
+                  || !isStatementStart(tokens, i))
+         {
+            continue;
+         }
+         int index = tokens.get(i + 1).type == GroovyDslLexer.TokenType.LEFT_PAREN ? i + 2 : i + 1;
+         while (tokens.get(index).type == GroovyDslLexer.TokenType.STRING)
+         {
+            projects.add(tokens.get(index).text);
+            if (tokens.get(index + 1).type != GroovyDslLexer.TokenType.COMMA)
+            {
+               break;
+            }
+            // Arguments may continue on the next line after comma
+            index += 2;
+            while (tokens.get(index).type == GroovyDslLexer.TokenType.NEW_LINE)
+            {
+               index++;
+            }
+         }
+      }
+      return projects;
+   }
+
+   private static boolean isStatementStart(List<GroovyDslLexer.Token> tokens, int index)
+   {
+      if (index == 0)
+      {
+         return true;
+      }
+      GroovyDslLexer.TokenType previous = tokens.get(index - 1).type;
+      return previous == GroovyDslLexer.TokenType.NEW_LINE || previous == GroovyDslLexer.TokenType.SEMICOLON
+               || previous == GroovyDslLexer.TokenType.LEFT_BRACE;
+   }
+
    public static String setArchiveName(String source, String archiveName)
    {
       SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
@@ -109,34 +215,11 @@ public class GradleSourceUtil
    public static String removeDependency(String source, GradleDependency dep)
             throws UnremovableElementException
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure deps : allDependencyInvocations(parser))
+      for (GradleScriptIndex.Entry<GradleDependency> entry : GradleScriptIndex.of(source).getDependencies())
       {
-         // Search in string invocations
-         for (InvocationWithString invocation : deps.getInvocationsWithString())
-         {
-            if (isDependencyInvocation(invocation) && dep.equals(dependencyFromInvocation(invocation)))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
-         }
-
-         // Search in map invocations
-         for (InvocationWithMap invocation : deps.getInvocationsWithMap())
-         {
-            if (isDependencyInvocation(invocation) && dep.equals(dependencyFromInvocation(invocation)))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
-         }
-
-         // Search in invocations with closure
-         for (InvocationWithClosure invocation : deps.getInvocationsWithClosure())
+         if (dep.equals(entry.getValue()))
          {
-            if (isDependencyInvocation(invocation) && dep.equals(dependencyFromInvocation(invocation)))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
+            return SourceUtil.removeSourceFragmentWithLine(source, entry.getElement());
          }
       }
 
@@ -148,40 +231,7 @@ public class GradleSourceUtil
     */
    public static List<GradleDependency> getDependencies(String source)
    {
-      List<GradleDependency> result = Lists.newArrayList();
-
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure deps : allDependencyInvocations(parser))
-      {
-         // Search in string invocations
-         for (InvocationWithString invocation : deps.getInvocationsWithString())
-         {
-            if (isDependencyInvocation(invocation))
-            {
-               result.add(dependencyFromInvocation(invocation));
-            }
-         }
-
-         // Search in map invocations
-         for (InvocationWithMap invocation : deps.getInvocationsWithMap())
-         {
-            if (isDependencyInvocation(invocation))
-            {
-               result.add(dependencyFromInvocation(invocation));
-            }
-         }
-
-         // Search in invocations with closure
-         for (InvocationWithClosure invocation : deps.getInvocationsWithClosure())
-         {
-            if (isDependencyInvocation(invocation))
-            {
-               result.add(dependencyFromInvocation(invocation));
-            }
-         }
-      }
-
-      return result;
+      return GradleScriptIndex.values(GradleScriptIndex.of(source).getDependencies());
    }
 
    public static String insertDirectDependency(String source, String group, String name)
@@ -194,20 +244,11 @@ public class GradleSourceUtil
    public static String removeDirectDependency(String source, String group, String name)
             throws UnremovableElementException
    {
-      Map<String, String> depMap = Maps.newHashMap();
-      depMap.put("group", group);
-      depMap.put("name", name);
-
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure deps : parser.allInvocationsAtPath("dependencies"))
+      for (GradleScriptIndex.Entry<GradleDependency> entry : GradleScriptIndex.of(source).getDirectDependencies())
       {
-         for (InvocationWithMap invocation : deps.getInvocationsWithMap())
+         if (group.equals(entry.getValue().getGroup()) && name.equals(entry.getValue().getName()))
          {
-            if (invocation.getMethodName().equals(DIRECT_CONFIG) &&
-                     invocation.getParameters().equals(depMap))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
+            return SourceUtil.removeSourceFragmentWithLine(source, entry.getElement());
          }
       }
 
@@ -220,26 +261,7 @@ public class GradleSourceUtil
     */
    public static List<GradleDependency> getDirectDependencies(String source)
    {
-      List<GradleDependency> deps = Lists.newArrayList();
-
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure invocation : allDependencyInvocations(parser))
-      {
-         for (InvocationWithMap mapInvocation : invocation.getInvocationsWithMap())
-         {
-            if (mapInvocation.getMethodName().equals(DIRECT_CONFIG))
-            {
-               Map<String, String> params = mapInvocation.getParameters();
-               GradleDependencyBuilder dep = GradleDependencyBuilder.create()
-                        .setGroup(params.get("group"))
-                        .setName(params.get("name"))
-                        .setConfiguration(GradleDependencyConfiguration.DIRECT);
-               deps.add(dep);
-            }
-         }
-      }
-
-      return deps;
+      return GradleScriptIndex.values(GradleScriptIndex.of(source).getDirectDependencies());
    }
 
    public static String insertManagedDependency(String source, GradleDependency dep)
@@ -267,30 +289,11 @@ public class GradleSourceUtil
    public static String removeManagedDependency(String source, GradleDependency dep)
             throws UnremovableElementException
    {
-      GradleDependencyBuilder builder = GradleDependencyBuilder.create(dep);
-      builder.setConfigurationName(MANAGED_CONFIG);
-
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure deps : allDependencyInvocations(parser))
+      for (GradleScriptIndex.Entry<GradleDependency> entry : GradleScriptIndex.of(source).getManagedDependencies())
       {
-         // Search in map invocations
-         for (InvocationWithMap invocation : deps.getInvocationsWithMap())
-         {
-            if (invocation.getMethodName().equals(MANAGED_CONFIG) &&
-                     dep.equals(dependencyFromInvocation(invocation)))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
-         }
-
-         // Search in invocations with closure
-         for (InvocationWithClosure invocation : deps.getInvocationsWithClosure())
+         if (dep.equals(entry.getValue()))
          {
-            if (invocation.getMethodName().equals(MANAGED_CONFIG) &&
-                     dep.equals(dependencyFromInvocation(invocation)))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
+            return SourceUtil.removeSourceFragmentWithLine(source, entry.getElement());
          }
       }
 
@@ -302,51 +305,12 @@ public class GradleSourceUtil
     */
    public static List<GradleDependency> getManagedDependencies(String source)
    {
-      List<GradleDependency> list = Lists.newArrayList();
-
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure deps : allDependencyInvocations(parser))
-      {
-         // Search in map invocations
-         for (InvocationWithMap invocation : deps.getInvocationsWithMap())
-         {
-            if (invocation.getMethodName().equals(MANAGED_CONFIG))
-            {
-               list.add(managedDependencyFromInvocation(invocation));
-            }
-         }
-
-         // Search in invocations with closure
-         for (InvocationWithClosure invocation : deps.getInvocationsWithClosure())
-         {
-            if (invocation.getMethodName().equals(MANAGED_CONFIG))
-            {
-               list.add(managedDependencyFromInvocation(invocation));
-            }
-         }
-      }
-
-      return list;
+      return GradleScriptIndex.values(GradleScriptIndex.of(source).getManagedDependencies());
    }
 
    public static List<GradlePlugin> getPlugins(String source)
    {
-      List<GradlePlugin> plugins = Lists.newArrayList();
-
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithMap invocation : parser.getInvocationsWithMap())
-      {
-         if (invocation.getMethodName().equals("apply"))
-         {
-            String plugin = invocation.getParameters().get("plugin");
-            if (invocation.getParameters().size() == 1 && plugin != null)
-            {
-               plugins.add(GradlePluginBuilder.create().setClazz(plugin));
-            }
-         }
-      }
-
-      return plugins;
+      return GradleScriptIndex.values(GradleScriptIndex.of(source).getPlugins());
    }
 
    /**
@@ -375,14 +339,11 @@ public class GradleSourceUtil
    public static String removePlugin(String source, String clazz)
             throws UnremovableElementException
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithMap invocation : parser.getInvocationsWithMap())
+      for (GradleScriptIndex.Entry<GradlePlugin> entry : GradleScriptIndex.of(source).getPlugins())
       {
-         if ((invocation.getMethodName().equals("apply") || invocation.getMethodName().equals("project.apply")) &&
-                  invocation.getParameters().size() == 1 &&
-                  clazz.equals(invocation.getParameters().get("plugin")))
+         if (clazz.equals(entry.getValue().getClazz()))
          {
-            return SourceUtil.removeSourceFragmentWithLine(source, invocation);
+            return SourceUtil.removeSourceFragmentWithLine(source, entry.getElement());
          }
       }
 
@@ -391,21 +352,7 @@ public class GradleSourceUtil
 
    public static List<GradleRepository> getRepositories(String source)
    {
-      List<GradleRepository> repos = Lists.newArrayList();
-
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure closure : parser.allInvocationsAtPath("repositories", "maven"))
-      {
-         for (InvocationWithString invocation : closure.getInvocationsWithString())
-         {
-            if (invocation.getMethodName().equals("url"))
-            {
-               repos.add(GradleRepositoryBuilder.create().setUrl(invocation.getString()));
-            }
-         }
-      }
-
-      return repos;
+      return GradleScriptIndex.values(GradleScriptIndex.of(source).getRepositories());
    }
 
    public static String insertRepository(String source, String url)
@@ -419,16 +366,11 @@ public class GradleSourceUtil
    public static String removeRepository(String source, String url)
             throws UnremovableElementException
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure repos : parser.allInvocationsAtPath("repositories", "maven"))
+      for (GradleScriptIndex.Entry<GradleRepository> entry : GradleScriptIndex.of(source).getRepositories())
       {
-         for (InvocationWithString invocation : repos.getInvocationsWithString())
+         if (url.equals(entry.getValue().getUrl()))
          {
-            if (invocation.getMethodName().equals("url") &&
-                     invocation.getString().equals(url))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
+            return SourceUtil.removeSourceFragmentWithLine(source, entry.getElement());
          }
       }
 
@@ -445,10 +387,9 @@ public class GradleSourceUtil
     */
    public static String setProperty(String source, String key, String value)
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
       String assignmentString = variableAssignmentString(key, value);
 
-      for (VariableAssignment assignment : parser.getVariableAssignments())
+      for (VariableAssignment assignment : GradleScriptIndex.of(source).getVariableAssignments())
       {
          // If it's already defined somewhere
          if (assignment.getVariable().equals(key))
@@ -473,8 +414,7 @@ public class GradleSourceUtil
 
    public static String removeProperty(String source, String key) throws UnremovableElementException
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (VariableAssignment assignment : parser.getVariableAssignments())
+      for (VariableAssignment assignment : GradleScriptIndex.of(source).getVariableAssignments())
       {
          if (assignment.getVariable().equals(key))
          {
@@ -543,23 +483,7 @@ public class GradleSourceUtil
     */
    public static boolean checkForIncludeForgeLibrary(String source)
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithMap invocation : parser.getInvocationsWithMap())
-      {
-         if (invocation.getMethodName().equals("apply"))
-         {
-            Map<String, String> map = invocation.getParameters();
-            String from = map.get("from");
-
-            // If it is already included in source then we just return the source
-            if (FORGE_LIBRARY.equals(from))
-            {
-               return true;
-            }
-         }
-      }
-
-      return false;
+      return GradleScriptIndex.of(source).isForgeLibraryIncluded();
    }
    
    /**
@@ -576,187 +500,7 @@ public class GradleSourceUtil
     */
    public static Map<String, String> getDirectProperties(String source)
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      Map<String, String> properties = Maps.newHashMap();
-      for (VariableAssignment assignment : parser.getVariableAssignments())
-      {
-         if (assignment.getVariable().startsWith(PROJECT_PROPERTY_PREFIX))
-         {
-            properties.put(assignment.getVariable().substring(PROJECT_PROPERTY_PREFIX.length()),
-                     assignment.getValue());
-         }
-      }
-      return properties;
-   }
-
-   private static List<InvocationWithClosure> allDependencyInvocations(SimpleGroovyParser parser)
-   {
-      List<InvocationWithClosure> depsInvocations = Lists.newArrayList();
-      depsInvocations.addAll(parser.allInvocationsAtPath("dependencies"));
-      depsInvocations.addAll(parser.allInvocationsAtPath("allprojects", "dependencies"));
-      return depsInvocations;
-   }
-
-   private static GradleDependency dependencyFromInvocation(InvocationWithString invocation)
-   {
-      return dependencyFromString(invocation.getMethodName(), invocation.getString());
-   }
-
-   private static GradleDependency dependencyFromInvocation(InvocationWithMap invocation)
-   {
-      return dependencyFromMap(invocation.getMethodName(), invocation.getParameters());
-   }
-
-   private static GradleDependency dependencyFromInvocation(InvocationWithClosure invocation)
-   {
-      GradleDependency gradleDep = null;
-      if (!Strings.isNullOrEmpty(invocation.getStringParameter()))
-      {
-         gradleDep = dependencyFromString(invocation.getMethodName(), invocation.getStringParameter());
-      }
-      else
-      {
-         gradleDep = dependencyFromMap(invocation.getMethodName(), invocation.getMapParameter());
-      }
-
-      gradleDep = loadDependencyConfiguration(gradleDep, invocation);
-
-      return gradleDep;
-   }
-
-   private static GradleDependency managedDependencyFromInvocation(InvocationWithMap invocation)
-   {
-      Map<String, String> map = Maps.newHashMap(invocation.getParameters());
-      String config = map.remove("configuration");
-      return dependencyFromMap(config, map);
-   }
-
-   private static GradleDependency managedDependencyFromInvocation(InvocationWithClosure invocation)
-   {
-      Map<String, String> map = Maps.newHashMap(invocation.getMapParameter());
-      String config = map.remove("configuration");
-
-      GradleDependency gradleDep = dependencyFromMap(config, map);
-      gradleDep = loadDependencyConfiguration(gradleDep, invocation);
-
-      return gradleDep;
-   }
-
-   private static GradleDependency loadDependencyConfiguration(GradleDependency dep, InvocationWithClosure invocation)
-   {
-      GradleDependencyBuilder builder = GradleDependencyBuilder.create(dep);
-
-      // Search for excludes
-      List<GradleDependency> excludes = Lists.newArrayList();
-      for (InvocationWithMap mapInvocation : invocation.getInvocationsWithMap())
-      {
-         if (mapInvocation.getMethodName().equals("exclude"))
-         {
-            String group = mapInvocation.getParameters().get("group");
-            String module = mapInvocation.getParameters().get("module");
-
-            // If group is not set then by default it uses dep group
-            if (Strings.isNullOrEmpty(group))
-            {
-               group = dep.getGroup();
-            }
-
-            excludes.add(GradleDependencyBuilder.create().setGroup(group).setName(module));
-         }
-      }
-      builder.setExcludedDependencies(excludes);
-
-      return builder;
-   }
-
-   private static GradleDependency dependencyFromString(String configurationName, String gradleString)
-   {
-      return GradleDependencyBuilder.create(configurationName, gradleString);
-   }
-
-   private static GradleDependency dependencyFromMap(String configurationName, Map<String, String> params)
-   {
-      String group = params.get("group");
-      String name = params.get("name");
-      String version = params.get("version");
-
-      String classifier = params.get("classifier");
-      if (Strings.isNullOrEmpty(classifier))
-      {
-         classifier = "";
-      }
-
-      String packaging = params.get("ext");
-      if (Strings.isNullOrEmpty(packaging))
-      {
-         packaging = "jar";
-      }
-
-      return GradleDependencyBuilder.create().setConfigurationName(configurationName)
-               .setGroup(group).setName(name).setVersion(version)
-               .setClassifier(classifier).setPackaging(packaging);
-   }
-
-   private static boolean isDependencyInvocation(InvocationWithString invocation)
-   {
-      return isGradleDependencyConfiguration(invocation.getMethodName()) &&
-               isGradleString(invocation.getString());
-   }
-
-   private static boolean isDependencyInvocation(InvocationWithMap invocation)
-   {
-      return isGradleDependencyConfiguration(invocation.getMethodName()) &&
-               isDependencyMap(invocation.getParameters());
-   }
-
-   private static boolean isDependencyInvocation(InvocationWithClosure invocation)
-   {
-      if (!isGradleDependencyConfiguration(invocation.getMethodName()))
-      {
-         return false;
-      }
-      if (!Strings.isNullOrEmpty(invocation.getStringParameter()) &&
-               isGradleString(invocation.getStringParameter()))
-      {
-         return true;
-      }
-      if (invocation.getMapParameter() != null && !invocation.getMapParameter().isEmpty() &&
-               isDependencyMap(invocation.getMapParameter()))
-      {
-         return true;
-      }
-      return false;
-   }
-
-   private static boolean isDependencyMap(Map<String, String> params)
-   {
-      return params.containsKey("group") && params.containsKey("name") && params.containsKey("version");
-   }
-
-   private static boolean isGradleDependencyConfiguration(String configName)
-   {
-      for (GradleDependencyConfiguration config : GradleDependencyConfiguration.values())
-      {
-         if (!Strings.isNullOrEmpty(config.getName()) && config.getName().equals(configName))
-         {
-            return true;
-         }
-      }
-
-      return false;
-   }
-
-   private static boolean isGradleString(String string)
-   {
-      try
-      {
-         GradleDependencyBuilder.create("", string);
-         return true;
-      }
-      catch (Exception ex)
-      {
-         return false;
-      }
+      return Maps.newHashMap(GradleScriptIndex.of(source).getDirectProperties());
    }
 
    private static String dependencyDeclaration(String declaration, String depGroup,
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.List;
+
+import org.gradle.jarjar.com.google.common.collect.Lists;
+
+/**
+ * Splits source into tokens of the Groovy subset understood by {@link GroovyDslParser}. Whitespaces and comments are
+ * skipped, anything outside of the subset (operators, GStrings, escape sequences etc.) ends tokenizing with
+ * {@link UnsupportedSyntaxException}.
+ *
+ * @author Adam Wyłuda
+ */
+class GroovyDslLexer
+{
+   enum TokenType
+   {
+      IDENTIFIER, STRING, NUMBER,
+      LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, LEFT_BRACKET, RIGHT_BRACKET,
+      COMMA, COLON, ASSIGN, DOT, LEFT_SHIFT, SEMICOLON, NEW_LINE, END
+   }
+
+   static class Token
+   {
+      final TokenType type;
+      /**
+       * Name of identifier or value of string, null for other tokens.
+       */
+      final String text;
+      final int start;
+      final int end;
+
+      Token(TokenType type, String text, int start, int end)
+      {
+         this.type = type;
+         this.text = text;
+         this.start = start;
+         this.end = end;
+      }
+   }
+
+   /**
+    * Thrown when source contains syntax which is not supported by lexer or parser. It is thrown often and caught right
+    * away, so it doesn't record stack trace.
+    */
+   static class UnsupportedSyntaxException extends RuntimeException
+   {
+      private static final long serialVersionUID = 1L;
+
+      UnsupportedSyntaxException(int position)
+      {
+         super("Unsupported syntax at position " + position, null, false, false);
+      }
+   }
+
+   private final String source;
+   private final List<Token> tokens = Lists.newArrayList();
+   private int position;
+
+   private GroovyDslLexer(String source)
+   {
+      this.source = source;
+   }
+
+   /**
+    * Returns tokens of given source, the last one is always {@link TokenType#END}.
+    */
+   static List<Token> tokenize(String source)
+   {
+      GroovyDslLexer lexer = new GroovyDslLexer(source);
+      lexer.tokenize();
+      return lexer.tokens;
+   }
+
+   private void tokenize()
+   {
+      while (position < source.length())
+      {
+         char c = source.charAt(position);
+         switch (c)
+         {
+         case ' ':
+         case '\t':
+         case '\f':
+            position++;
+            break;
+         case '\n':
+            addToken(TokenType.NEW_LINE, 1);
+            break;
+         case '\r':
+            // Only Windows line endings, new line starts at carriage return like in Groovy
+            if (charAt(position + 1) != '\n')
+            {
+               throw new UnsupportedSyntaxException(position);
+            }
+            addToken(TokenType.NEW_LINE, 2);
+            break;
+         case '/':
+            skipComment();
+            break;
+         case '\'':
+         case '"':
+            readString(c);
+            break;
+         case '(':
+            addToken(TokenType.LEFT_PAREN, 1);
+            break;
+         case ')':
+            addToken(TokenType.RIGHT_PAREN, 1);
+            break;
+         case '{':
+            addToken(TokenType.LEFT_BRACE, 1);
+            break;
+         case '}':
+            addToken(TokenType.RIGHT_BRACE, 1);
+            break;
+         case '[':
+            addToken(TokenType.LEFT_BRACKET, 1);
+            break;
+         case ']':
+            addToken(TokenType.RIGHT_BRACKET, 1);
+            break;
+         case ',':
+            addToken(TokenType.COMMA, 1);
+            break;
+         case ':':
+            addToken(TokenType.COLON, 1);
+            break;
+         case ';':
+            addToken(TokenType.SEMICOLON, 1);
+            break;
+         case '=':
+            // Comparison and regex operators
+            if (charAt(position + 1) == '=' || charAt(position + 1) == '~')
+            {
+               throw new UnsupportedSyntaxException(position);
+            }
+            addToken(TokenType.ASSIGN, 1);
+            break;
+         case '<':
+            // Only left shift, used by task declarations like task x << {}
+            if (charAt(position + 1) != '<' || charAt(position + 2) == '=')
+            {
+               throw new UnsupportedSyntaxException(position);
+            }
+            addToken(TokenType.LEFT_SHIFT, 2);
+            break;
+         case '.':
+            // Ranges, method pointers and direct field access
+            if (charAt(position + 1) == '.' || charAt(position + 1) == '&' || charAt(position + 1) == '@')
+            {
+               throw new UnsupportedSyntaxException(position);
+            }
+            addToken(TokenType.DOT, 1);
+            break;
+         default:
+            if (isIdentifierStart(c))
+            {
+               readIdentifier();
+            }
+            else if (isDigit(c))
+            {
+               readNumber();
+            }
+            else
+            {
+               throw new UnsupportedSyntaxException(position);
+            }
+         }
+      }
+      tokens.add(new Token(TokenType.END, null, position, position));
+   }
+
+   private void addToken(TokenType type, int length)
+   {
+      tokens.add(new Token(type, null, position, position + length));
+      position += length;
+   }
+
+   private void skipComment()
+   {
+      char next = charAt(position + 1);
+      if (next == '/')
+      {
+         int end = source.indexOf('\n', position);
+         position = end != -1 ? end : source.length();
+         // Windows line ending belongs to the new line
+         if (end != -1 && source.charAt(end - 1) == '\r')
+         {
+            position--;
+         }
+      }
+      else if (next == '*')
+      {
+         int end = source.indexOf("*/", position + 2);
+         if (end == -1)
+         {
+            throw new UnsupportedSyntaxException(position);
+         }
+         position = end + 2;
+      }
+      else
+      {
+         // Division or slashy string
+         throw new UnsupportedSyntaxException(position);
+      }
+   }
+
+   private void readString(char quote)
+   {
+      int start = position;
+      // Triple quoted strings may span many lines
+      if (charAt(position + 1) == quote && charAt(position + 2) == quote)
+      {
+         throw new UnsupportedSyntaxException(position);
+      }
+      position++;
+      while (true)
+      {
+         char c = charAt(position);
+         if (c == quote)
+         {
+            break;
+         }
+         // Escape sequences, GString expressions and unterminated strings
+         if (c == '\\' || c == '\n' || c == '\r' || c == 0 || (quote == '"' && c == '$'))
+         {
+            throw new UnsupportedSyntaxException(position);
+         }
+         position++;
+      }
+      position++;
+      tokens.add(new Token(TokenType.STRING, source.substring(start + 1, position - 1), start, position));
+   }
+
+   private void readIdentifier()
+   {
+      int start = position;
+      while (position < source.length() && isIdentifierPart(source.charAt(position)))
+      {
+         position++;
+      }
+      tokens.add(new Token(TokenType.IDENTIFIER, source.substring(start, position), start, position));
+   }
+
+   private void readNumber()
+   {
+      int start = position;
+      skipDigits();
+      if (charAt(position) == '.' && isDigit(charAt(position + 1)))
+      {
+         position++;
+         skipDigits();
+      }
+      // Suffixes, exponents, hexadecimal numbers and method calls on numbers
+      if (isIdentifierPart(charAt(position)) || charAt(position) == '.')
+      {
+         throw new UnsupportedSyntaxException(position);
+      }
+      tokens.add(new Token(TokenType.NUMBER, null, start, position));
+   }
+
+   private void skipDigits()
+   {
+      while (isDigit(charAt(position)))
+      {
+         position++;
+      }
+   }
+
+   /**
+    * Returns character at given position or 0 if it is the end of source.
+    */
+   private char charAt(int index)
+   {
+      return index < source.length() ? source.charAt(index) : 0;
+   }
+
+   private static boolean isDigit(char c)
+   {
+      return c >= '0' && c <= '9';
+   }
+
+   private static boolean isIdentifierStart(char c)
+   {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+   }
+
+   private static boolean isIdentifierPart(char c)
+   {
+      return isIdentifierStart(c) || isDigit(c);
+   }
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.jarjar.com.google.common.collect.ImmutableSet;
+import org.gradle.jarjar.com.google.common.collect.Lists;
+import org.gradle.jarjar.com.google.common.collect.Maps;
+import org.jboss.forge.addon.gradle.parser.GroovyDslLexer.Token;
+import org.jboss.forge.addon.gradle.parser.GroovyDslLexer.TokenType;
+import org.jboss.forge.addon.gradle.parser.GroovyDslLexer.UnsupportedSyntaxException;
+
+/**
+ * Recursive descent parser of the Groovy subset used by typical build scripts: method calls with strings, maps and
+ * closures as arguments, property assignments and comments. It creates the same invocation tree, with the same
+ * positions, as {@link GroovyCompilerParser} does, without loading and running the Groovy compiler.
+ *
+ * @author Adam Wyłuda
+ */
+class GroovyDslParser
+{
+   private static final Set<String> KEYWORDS = ImmutableSet.of(
+            "abstract", "as", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "def", "default", "do", "double", "else", "enum", "extends", "false", "final", "finally",
+            "float", "for", "goto", "if", "implements", "import", "in", "instanceof", "int", "interface", "long",
+            "native", "new", "null", "package", "private", "protected", "public", "return", "short", "static",
+            "strictfp", "super", "switch", "synchronized", "this", "threadsafe", "throw", "throws", "trait",
+            "transient", "true", "try", "void", "volatile", "while");
+   private static final Set<String> LITERALS = ImmutableSet.of("true", "false", "null");
+
+   /**
+    * Invocation with closure before its code and position are known.
+    */
+   private static class Node
+   {
+      final List<InvocationWithClosure> invocationWithClosureList = Lists.newArrayList();
+      final List<InvocationWithMap> invocationWithMapList = Lists.newArrayList();
+      final List<InvocationWithString> invocationWithStringList = Lists.newArrayList();
+      final List<VariableAssignment> variableAssignmentList = Lists.newArrayList();
+   }
+
+   /**
+    * Argument of a method call or assigned value. Only strings and closures matter, everything else is kept as
+    * {@link #OTHER}.
+    */
+   private static class Value
+   {
+      static final Value OTHER = new Value(null, null);
+
+      final String string;
+      final Node closure;
+
+      Value(String string, Node closure)
+      {
+         this.string = string;
+         this.closure = closure;
+      }
+   }
+
+   private final String source;
+   private final LineIndex lineIndex;
+   private final List<Token> tokens;
+   private int current;
+
+   private GroovyDslParser(String source, LineIndex lineIndex, List<Token> tokens)
+   {
+      this.source = source;
+      this.lineIndex = lineIndex;
+      this.tokens = tokens;
+   }
+
+   /**
+    * Returns invocation tree of given source or null if source contains syntax which is not supported.
+    */
+   static InvocationWithClosure parse(String source, LineIndex lineIndex)
+   {
+      Node root = new Node();
+      try
+      {
+         GroovyDslParser parser = new GroovyDslParser(source, lineIndex, GroovyDslLexer.tokenize(source));
+         parser.parseBlock(root, TokenType.END);
+      }
+      catch (UnsupportedSyntaxException e)
+      {
+         return null;
+      }
+      // Root has no code, it is placed at the beginning of source
+      int position = lineIndex.position(1, 1);
+      return new InvocationWithClosure(source, position, position, null, null, null,
+               root.invocationWithClosureList, root.invocationWithStringList,
+               root.invocationWithMapList, root.variableAssignmentList,
+               1, 1, 1, 1);
+   }
+
+   private void parseBlock(Node node, TokenType terminator)
+   {
+      while (true)
+      {
+         TokenType type = peek().type;
+         if (type == TokenType.NEW_LINE || type == TokenType.SEMICOLON)
+         {
+            current++;
+         }
+         else if (type == terminator)
+         {
+            return;
+         }
+         else
+         {
+            parseStatement(node);
+            type = peek().type;
+            if (type != TokenType.NEW_LINE && type != TokenType.SEMICOLON && type != terminator)
+            {
+               throw new UnsupportedSyntaxException(peek().start);
+            }
+         }
+      }
+   }
+
+   private void parseStatement(Node node)
+   {
+      Token first = peek();
+      if (first.type == TokenType.STRING || first.type == TokenType.NUMBER)
+      {
+         // Constant as a statement does nothing
+         parseValue();
+         return;
+      }
+      if (first.type == TokenType.IDENTIFIER && first.text.equals("def"))
+      {
+         // Declarations are not variable assignments
+         current++;
+         expectName();
+         if (peek().type == TokenType.ASSIGN)
+         {
+            current++;
+            parseValue();
+         }
+         return;
+      }
+
+      List<String> names = parseDottedName();
+      String methodName = names.get(names.size() - 1);
+      Map<String, Value> namedArguments = Maps.newLinkedHashMap();
+      List<Value> arguments = Lists.newArrayList();
+
+      switch (peek().type)
+      {
+      case ASSIGN:
+         current++;
+         Value value = parseValue();
+         if (value.string != null)
+         {
+            int end = peek().start;
+            node.variableAssignmentList.add(new VariableAssignment(source, first.start, end,
+                     join(names), value.string,
+                     lineIndex.lineNumber(first.start), lineIndex.columnNumber(first.start),
+                     lineIndex.lineNumber(end), lineIndex.columnNumber(end)));
+         }
+         return;
+      case LEFT_PAREN:
+         current++;
+         parseArguments(namedArguments, arguments, TokenType.RIGHT_PAREN);
+         if (peek().type == TokenType.LEFT_BRACE)
+         {
+            current++;
+            arguments.add(parseClosure());
+         }
+         break;
+      case LEFT_BRACE:
+         current++;
+         arguments.add(parseClosure());
+         break;
+      case NEW_LINE:
+         // Closure may start in one of the next lines
+         int next = current;
+         while (tokens.get(next).type == TokenType.NEW_LINE)
+         {
+            next++;
+         }
+         if (tokens.get(next).type != TokenType.LEFT_BRACE)
+         {
+            return;
+         }
+         current = next + 1;
+         arguments.add(parseClosure());
+         break;
+      case SEMICOLON:
+      case RIGHT_BRACE:
+      case END:
+         return;
+      case LEFT_SHIFT:
+         break;
+      default:
+         parseCommandArguments(namedArguments, arguments);
+      }
+
+      if (peek().type == TokenType.LEFT_SHIFT)
+      {
+         // Left shift expression, like task x << {}, is not an invocation
+         current++;
+         parseValue();
+         return;
+      }
+
+      addInvocation(node, first, methodName, namedArguments, arguments);
+   }
+
+   /**
+    * Adds invocation to the node, the same way as {@link GroovyCompilerParser} does for method call expressions.
+    */
+   private void addInvocation(Node node, Token first, String methodName, Map<String, Value> namedArguments,
+            List<Value> arguments)
+   {
+      // Like Groovy, invocation ends where the next token starts
+      int start = first.start;
+      int end = peek().start;
+      int lineNumber = lineIndex.lineNumber(start);
+      int columnNumber = lineIndex.columnNumber(start);
+      int lastLineNumber = lineIndex.lineNumber(end);
+      int lastColumnNumber = lineIndex.columnNumber(end);
+
+      if (!namedArguments.isEmpty() && arguments.isEmpty())
+      {
+         node.invocationWithMapList.add(new InvocationWithMap(source, start, end, methodName, strings(namedArguments),
+                  lineNumber, columnNumber, lineNumber, lastColumnNumber));
+         return;
+      }
+
+      // Named arguments are passed as a map before other arguments
+      if (!namedArguments.isEmpty())
+      {
+         arguments.add(0, Value.OTHER);
+      }
+
+      if (arguments.size() == 1 && arguments.get(0).string != null)
+      {
+         node.invocationWithStringList.add(new InvocationWithString(source, start, end, methodName,
+                  arguments.get(0).string, lineNumber, columnNumber, lastLineNumber, lastColumnNumber));
+      }
+      else if (arguments.size() == 1 && arguments.get(0).closure != null)
+      {
+         addInvocationWithClosure(node, arguments.get(0).closure, start, end, methodName, "",
+                  Maps.<String, String> newHashMap(), lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      }
+      else if (arguments.size() == 2 && arguments.get(1).closure != null)
+      {
+         Value firstArgument = arguments.get(0);
+         String stringParameter = firstArgument.string != null ? firstArgument.string : "";
+         Map<String, String> mapParameter = !namedArguments.isEmpty() ? strings(namedArguments) :
+                  Maps.<String, String> newHashMap();
+         addInvocationWithClosure(node, arguments.get(1).closure, start, end, methodName,
+                  stringParameter, mapParameter, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      }
+   }
+
+   private void addInvocationWithClosure(Node node, Node closure, int start, int end, String methodName,
+            String stringParameter, Map<String, String> mapParameter,
+            int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
+   {
+      node.invocationWithClosureList.add(new InvocationWithClosure(source, start, end,
+               methodName, stringParameter, mapParameter,
+               closure.invocationWithClosureList, closure.invocationWithStringList,
+               closure.invocationWithMapList, closure.variableAssignmentList,
+               lineNumber, columnNumber, lastLineNumber, lastColumnNumber));
+   }
+
+   /**
+    * Parses arguments of a call with parentheses, until given terminator.
+    */
+   private void parseArguments(Map<String, Value> namedArguments, List<Value> arguments, TokenType terminator)
+   {
+      skipNewLines();
+      if (peek().type != terminator)
+      {
+         while (true)
+         {
+            parseArgument(namedArguments, arguments);
+            skipNewLines();
+            if (peek().type != TokenType.COMMA)
+            {
+               break;
+            }
+            current++;
+            skipNewLines();
+         }
+      }
+      expect(terminator);
+   }
+
+   /**
+    * Parses arguments of a call without parentheses, like <i>compile 'a:b:1.0'</i>.
+    */
+   private void parseCommandArguments(Map<String, Value> namedArguments, List<Value> arguments)
+   {
+      // Square bracket after method name is an index, not a list
+      if (peek().type == TokenType.LEFT_BRACKET)
+      {
+         throw new UnsupportedSyntaxException(peek().start);
+      }
+      while (true)
+      {
+         parseArgument(namedArguments, arguments);
+         if (peek().type != TokenType.COMMA)
+         {
+            break;
+         }
+         current++;
+         skipNewLines();
+      }
+   }
+
+   private void parseArgument(Map<String, Value> namedArguments, List<Value> arguments)
+   {
+      Token token = peek();
+      boolean isKey = token.type == TokenType.STRING ||
+               (token.type == TokenType.IDENTIFIER && !KEYWORDS.contains(token.text));
+      if (isKey && tokens.get(current + 1).type == TokenType.COLON)
+      {
+         current += 2;
+         skipNewLines();
+         namedArguments.put(token.text, parseValue());
+      }
+      else
+      {
+         arguments.add(parseValue());
+      }
+   }
+
+   private Value parseValue()
+   {
+      Token token = peek();
+      switch (token.type)
+      {
+      case STRING:
+         current++;
+         return new Value(token.text, null);
+      case NUMBER:
+         current++;
+         return Value.OTHER;
+      case LEFT_BRACE:
+         current++;
+         return parseClosure();
+      case LEFT_BRACKET:
+         current++;
+         parseList();
+         return Value.OTHER;
+      case IDENTIFIER:
+         if (LITERALS.contains(token.text))
+         {
+            current++;
+            return Value.OTHER;
+         }
+         parseDottedName();
+         if (peek().type == TokenType.LEFT_PAREN)
+         {
+            // Result of a call is never a string, so its arguments don't matter
+            current++;
+            parseArguments(Maps.<String, Value> newLinkedHashMap(), Lists.<Value> newArrayList(),
+                     TokenType.RIGHT_PAREN);
+         }
+         if (peek().type == TokenType.LEFT_BRACE)
+         {
+            // Closure belongs to this call, like in task x(type: Copy) {}
+            current++;
+            parseClosure();
+         }
+         return Value.OTHER;
+      default:
+         throw new UnsupportedSyntaxException(token.start);
+      }
+   }
+
+   private void parseList()
+   {
+      skipNewLines();
+      if (peek().type != TokenType.RIGHT_BRACKET)
+      {
+         while (true)
+         {
+            parseValue();
+            skipNewLines();
+            if (peek().type != TokenType.COMMA)
+            {
+               break;
+            }
+            current++;
+            skipNewLines();
+         }
+      }
+      expect(TokenType.RIGHT_BRACKET);
+   }
+
+   /**
+    * Parses closure after its opening brace.
+    */
+   private Value parseClosure()
+   {
+      Node closure = new Node();
+      parseBlock(closure, TokenType.RIGHT_BRACE);
+      expect(TokenType.RIGHT_BRACE);
+      return new Value(null, closure);
+   }
+
+   private List<String> parseDottedName()
+   {
+      List<String> names = Lists.newArrayList();
+      names.add(expectName());
+      while (peek().type == TokenType.DOT)
+      {
+         current++;
+         names.add(expectName());
+      }
+      return names;
+   }
+
+   private String expectName()
+   {
+      Token token = expect(TokenType.IDENTIFIER);
+      if (KEYWORDS.contains(token.text))
+      {
+         throw new UnsupportedSyntaxException(token.start);
+      }
+      return token.text;
+   }
+
+   private Token expect(TokenType type)
+   {
+      Token token = peek();
+      if (token.type != type)
+      {
+         throw new UnsupportedSyntaxException(token.start);
+      }
+      current++;
+      return token;
+   }
+
+   private void skipNewLines()
+   {
+      while (peek().type == TokenType.NEW_LINE)
+      {
+         current++;
+      }
+   }
+
+   private Token peek()
+   {
+      return tokens.get(current);
+   }
+
+   private static Map<String, String> strings(Map<String, Value> namedArguments)
+   {
+      Map<String, String> map = Maps.newHashMap();
+      for (Map.Entry<String, Value> entry : namedArguments.entrySet())
+      {
+         if (entry.getValue().string != null)
+         {
+            map.put(entry.getKey(), entry.getValue().string);
+         }
+      }
+      return map;
+   }
+
+   private static String join(List<String> names)
+   {
+      StringBuilder builder = new StringBuilder(names.get(0));
+      for (int i = 1; i < names.size(); i++)
+      {
+         builder.append('.').append(names.get(i));
+      }
+      return builder.toString();
+   }
+}
@@ -12,6 +12,7 @@ import java.util.Map;
 
 import org.gradle.jarjar.com.google.common.base.Optional;
 import org.gradle.jarjar.com.google.common.collect.ImmutableList;
+import org.gradle.jarjar.com.google.common.collect.ImmutableMap;
 import org.gradle.jarjar.com.google.common.collect.Maps;
 
 /**
@@ -35,10 +36,11 @@ public class InvocationWithClosure extends SourceCodeElement
    private final Map<String, InvocationWithMap> mapInvocationMap = Maps.newHashMap();
    private final Map<String, VariableAssignment> variableAssignmentMap = Maps.newHashMap();
 
-   public InvocationWithClosure(String code, String methodName,  String stringParameter, Map<String, String> mapParameter,
+   public InvocationWithClosure(String source, int startPosition, int endPosition,
+            String methodName, String stringParameter, Map<String, String> mapParameter,
             int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
    {
-      this(code,
+      this(source, startPosition, endPosition,
                methodName, stringParameter, mapParameter,
                new ArrayList<InvocationWithClosure>(),
                new ArrayList<InvocationWithString>(),
@@ -47,7 +49,7 @@ public class InvocationWithClosure extends SourceCodeElement
                lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
    }
 
-   public InvocationWithClosure(String code,
+   public InvocationWithClosure(String source, int startPosition, int endPosition,
             String methodName, String stringParameter, Map<String, String> mapParameter,
             List<InvocationWithClosure> internalInvocations,
             List<InvocationWithString> stringInvocations,
@@ -55,16 +57,16 @@ public class InvocationWithClosure extends SourceCodeElement
             List<VariableAssignment> variableAssignments,
             int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
    {
-      super(code, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      super(source, startPosition, endPosition, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
       
       this.methodName = methodName;
       this.stringParameter = stringParameter;
-      this.mapParameter = mapParameter;
+      this.mapParameter = mapParameter != null ? ImmutableMap.<String, String> copyOf(mapParameter) : null;
       
       this.internalInvocations = ImmutableList.<InvocationWithClosure> copyOf(internalInvocations);
       this.stringInvocations = ImmutableList.<InvocationWithString> copyOf(stringInvocations);
       this.mapInvocations = ImmutableList.<InvocationWithMap> copyOf(mapInvocations);
-      this.variableAssignments = variableAssignments;
+      this.variableAssignments = ImmutableList.<VariableAssignment> copyOf(variableAssignments);
 
       // Filling indexes
       for (InvocationWithClosure invocation : internalInvocations)
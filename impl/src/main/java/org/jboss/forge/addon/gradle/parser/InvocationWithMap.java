@@ -20,10 +20,11 @@ public class InvocationWithMap extends SourceCodeElement
    private final String methodName;
    private final Map<String, String> parameters;
 
-   public InvocationWithMap(String code, String methodName, Map<String, String> parameters,
+   public InvocationWithMap(String source, int startPosition, int endPosition,
+            String methodName, Map<String, String> parameters,
             int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
    {
-      super(code, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      super(source, startPosition, endPosition, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
       this.methodName = methodName;
       this.parameters = ImmutableMap.<String, String> copyOf(parameters);
    }
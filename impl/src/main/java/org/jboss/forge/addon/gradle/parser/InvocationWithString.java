@@ -16,10 +16,11 @@ public class InvocationWithString extends SourceCodeElement
    private final String methodName;
    private final String string;
 
-   public InvocationWithString(String code, String methodName, String string,
+   public InvocationWithString(String source, int startPosition, int endPosition,
+            String methodName, String string,
             int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
    {
-      super(code, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      super(source, startPosition, endPosition, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
       this.methodName = methodName;
       this.string = string;
    }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.Arrays;
+
+import org.gradle.jarjar.com.google.common.base.Preconditions;
+
+/**
+ * Index of line beginnings in source, which translates line and column numbers into positions in source and back.
+ * It should be created once per version of source and reused for all lookups.
+ *
+ * @author Adam Wyłuda
+ */
+public class LineIndex
+{
+   private final int[] lineStarts;
+   private final int[] lineLengths;
+
+   private LineIndex(int[] lineStarts, int[] lineLengths)
+   {
+      this.lineStarts = lineStarts;
+      this.lineLengths = lineLengths;
+   }
+
+   public static LineIndex of(String source)
+   {
+      // Empty lines at the end of source are not counted, just like String#split does
+      int length = source.length();
+      while (length > 0 && source.charAt(length - 1) == '\n')
+      {
+         length--;
+      }
+      if (length == 0)
+      {
+         return source.isEmpty() ? new LineIndex(new int[] { 0 }, new int[] { 0 }) :
+                  new LineIndex(new int[0], new int[0]);
+      }
+
+      int lineCount = 1;
+      for (int i = 0; i < length; i++)
+      {
+         if (source.charAt(i) == '\n')
+         {
+            lineCount++;
+         }
+      }
+
+      int[] lineStarts = new int[lineCount];
+      int[] lineLengths = new int[lineCount];
+      int line = 0;
+      for (int i = 0; i < length; i++)
+      {
+         if (source.charAt(i) == '\n')
+         {
+            lineLengths[line] = i - lineStarts[line];
+            lineStarts[++line] = i + 1;
+         }
+      }
+      lineLengths[line] = length - lineStarts[line];
+      return new LineIndex(lineStarts, lineLengths);
+   }
+
+   public int getLineCount()
+   {
+      return lineStarts.length;
+   }
+
+   /**
+    * @param lineNumber Position indexed from 1.
+    * @param columnNumber Position indexed from 1.
+    * @return Real position of given coordinates in source.
+    */
+   public int position(int lineNumber, int columnNumber)
+   {
+      Preconditions.checkArgument(lineNumber >= 1, "Line number must be greater than 0");
+      Preconditions.checkArgument(columnNumber >= 1, "Column number must be greater than 0");
+      Preconditions.checkArgument(lineNumber <= lineStarts.length, "Given line number exceeds line count");
+      Preconditions.checkArgument(columnNumber - 1 <= lineLengths[lineNumber - 1],
+               "Given column number exceeds column count in line");
+
+      return lineStarts[lineNumber - 1] + columnNumber - 1;
+   }
+
+   /**
+    * Returns number of line (indexed from 1) which contains given position.
+    */
+   public int lineNumber(int position)
+   {
+      Preconditions.checkArgument(position >= 0, "Position must not be negative");
+      Preconditions.checkArgument(lineStarts.length > 0, "Source has no lines");
+
+      int index = Arrays.binarySearch(lineStarts, position);
+      // If position is not a line beginning, binary search returns -(insertion point) - 1
+      return index >= 0 ? index + 1 : -index - 1;
+   }
+
+   /**
+    * Returns column number (indexed from 1) of given position.
+    */
+   public int columnNumber(int position)
+   {
+      return position - lineStarts[lineNumber(position) - 1] + 1;
+   }
+}
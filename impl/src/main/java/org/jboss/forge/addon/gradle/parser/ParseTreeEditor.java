@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.List;
+
+import org.gradle.jarjar.com.google.common.collect.Lists;
+
+/**
+ * Updates parse tree after an edit of its source. If edited region is inside of a single top level closure, only that
+ * closure is parsed again, other elements are moved to their new positions.
+ *
+ * @author Adam Wyłuda
+ */
+class ParseTreeEditor
+{
+   private final String editedSource;
+   private final LineIndex lineIndex;
+   /**
+    * Positions from this one on are moved by shift.
+    */
+   private final int shiftFrom;
+   private final int shift;
+
+   private ParseTreeEditor(String editedSource, LineIndex lineIndex, int shiftFrom, int shift)
+   {
+      this.editedSource = editedSource;
+      this.lineIndex = lineIndex;
+      this.shiftFrom = shiftFrom;
+      this.shift = shift;
+   }
+
+   /**
+    * Returns parse tree of edited source, which is the source of given tree with region from start to end replaced. If
+    * it can't be created without parsing whole edited source, returns null.
+    */
+   static InvocationWithClosure edit(InvocationWithClosure root, String editedSource, LineIndex lineIndex,
+            int start, int end, int replacementLength)
+   {
+      for (InvocationWithClosure block : root.getInvocationsWithClosure())
+      {
+         if (block.getStartPosition() <= start && end <= block.getEndPosition())
+         {
+            int shift = replacementLength - (end - start);
+            InvocationWithClosure editedBlock = reparseBlock(editedSource, block.getStartPosition(),
+                     block.getEndPosition() + shift);
+            if (editedBlock == null)
+            {
+               return null;
+            }
+
+            ParseTreeEditor blockEditor = new ParseTreeEditor(editedSource, lineIndex, 0, block.getStartPosition());
+            ParseTreeEditor editor = new ParseTreeEditor(editedSource, lineIndex, block.getEndPosition(), shift);
+            List<InvocationWithClosure> invocationsWithClosure = Lists.newArrayList();
+            for (InvocationWithClosure invocation : root.getInvocationsWithClosure())
+            {
+               invocationsWithClosure.add(invocation == block ? blockEditor.move(editedBlock) :
+                        editor.move(invocation));
+            }
+            return new InvocationWithClosure(editedSource, 0, 0, null, null, null,
+                     invocationsWithClosure, editor.moveInvocationsWithString(root),
+                     editor.moveInvocationsWithMap(root), editor.moveVariableAssignments(root),
+                     1, 1, 1, 1);
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Parses edited block alone. Statements don't depend on their surroundings, so it's a valid replacement of the old
+    * block as long as it's still a single invocation with closure which spans whole block.
+    */
+   private static InvocationWithClosure reparseBlock(String editedSource, int start, int end)
+   {
+      String blockSource = editedSource.substring(start, end);
+      InvocationWithClosure blockRoot;
+      try
+      {
+         blockRoot = SimpleGroovyParser.parseTree(blockSource, LineIndex.of(blockSource));
+      }
+      catch (RuntimeException e)
+      {
+         // Syntax error will be reported when whole source is parsed
+         return null;
+      }
+      if (blockRoot.getInvocationsWithClosure().size() != 1 || !blockRoot.getInvocationsWithString().isEmpty() ||
+               !blockRoot.getInvocationsWithMap().isEmpty() || !blockRoot.getVariableAssignments().isEmpty())
+      {
+         return null;
+      }
+      InvocationWithClosure block = blockRoot.getInvocationsWithClosure().get(0);
+      return block.getStartPosition() == 0 && block.getEndPosition() == blockSource.length() ? block : null;
+   }
+
+   private int move(int position)
+   {
+      return position >= shiftFrom ? position + shift : position;
+   }
+
+   private InvocationWithClosure move(InvocationWithClosure invocation)
+   {
+      List<InvocationWithClosure> invocationsWithClosure = Lists.newArrayList();
+      for (InvocationWithClosure subinvocation : invocation.getInvocationsWithClosure())
+      {
+         invocationsWithClosure.add(move(subinvocation));
+      }
+      int start = move(invocation.getStartPosition());
+      int end = move(invocation.getEndPosition());
+      return new InvocationWithClosure(editedSource, start, end, invocation.getMethodName(),
+               invocation.getStringParameter(), invocation.getMapParameter(),
+               invocationsWithClosure, moveInvocationsWithString(invocation),
+               moveInvocationsWithMap(invocation), moveVariableAssignments(invocation),
+               lineIndex.lineNumber(start), lineIndex.columnNumber(start),
+               lineIndex.lineNumber(end), lineIndex.columnNumber(end));
+   }
+
+   private List<InvocationWithString> moveInvocationsWithString(InvocationWithClosure invocation)
+   {
+      List<InvocationWithString> list = Lists.newArrayList();
+      for (InvocationWithString subinvocation : invocation.getInvocationsWithString())
+      {
+         int start = move(subinvocation.getStartPosition());
+         int end = move(subinvocation.getEndPosition());
+         list.add(new InvocationWithString(editedSource, start, end, subinvocation.getMethodName(),
+                  subinvocation.getString(), lineIndex.lineNumber(start), lineIndex.columnNumber(start),
+                  lineIndex.lineNumber(end), lineIndex.columnNumber(end)));
+      }
+      return list;
+   }
+
+   private List<InvocationWithMap> moveInvocationsWithMap(InvocationWithClosure invocation)
+   {
+      List<InvocationWithMap> list = Lists.newArrayList();
+      for (InvocationWithMap subinvocation : invocation.getInvocationsWithMap())
+      {
+         int start = move(subinvocation.getStartPosition());
+         int end = move(subinvocation.getEndPosition());
+         // Like in parsers, last line of map invocation is the line it starts in
+         list.add(new InvocationWithMap(editedSource, start, end, subinvocation.getMethodName(),
+                  subinvocation.getParameters(), lineIndex.lineNumber(start), lineIndex.columnNumber(start),
+                  lineIndex.lineNumber(start), lineIndex.columnNumber(end)));
+      }
+      return list;
+   }
+
+   private List<VariableAssignment> moveVariableAssignments(InvocationWithClosure invocation)
+   {
+      List<VariableAssignment> list = Lists.newArrayList();
+      for (VariableAssignment assignment : invocation.getVariableAssignments())
+      {
+         int start = move(assignment.getStartPosition());
+         int end = move(assignment.getEndPosition());
+         list.add(new VariableAssignment(editedSource, start, end, assignment.getVariable(),
+                  assignment.getValue(), lineIndex.lineNumber(start), lineIndex.columnNumber(start),
+                  lineIndex.lineNumber(end), lineIndex.columnNumber(end)));
+      }
+      return list;
+   }
+}
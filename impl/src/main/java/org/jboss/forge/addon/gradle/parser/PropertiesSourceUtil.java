@@ -0,0 +1,223 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reads and modifies properties files like <i>gradle.properties</i>. Modifications are done in place, so comments,
+ * ordering and formatting of other entries are preserved.
+ *
+ * @author Adam Wyłuda
+ */
+public class PropertiesSourceUtil
+{
+   private PropertiesSourceUtil()
+   {
+   }
+
+   /**
+    * Returns all properties defined in given source, in order of their definition.
+    */
+   public static Map<String, String> getProperties(String source)
+   {
+      Properties properties = new Properties();
+      try
+      {
+         properties.load(new StringReader(source));
+      }
+      catch (IOException e)
+      {
+         // Can't happen when reading from string
+         throw new IllegalStateException(e);
+      }
+
+      Map<String, String> map = new LinkedHashMap<String, String>();
+      for (String line : source.split("\n"))
+      {
+         String key = keyOf(line);
+         if (key != null && properties.containsKey(key))
+         {
+            map.put(key, properties.getProperty(key));
+         }
+      }
+      return map;
+   }
+
+   /**
+    * Sets value of the property. If the property is already defined then only its value is replaced, otherwise it's
+    * appended at the end of source.
+    */
+   public static String setProperty(String source, String key, String value)
+   {
+      StringBuilder builder = new StringBuilder();
+      boolean found = false;
+      int start = 0;
+      while (start < source.length())
+      {
+         int end = lineEnd(source, start);
+         String line = source.substring(start, end);
+         if (!found && key.equals(keyOf(line)))
+         {
+            String content = lineContent(line);
+            builder.append(content.substring(0, valueStart(content))).append(escape(value))
+                     .append(line.substring(content.length()));
+            found = true;
+            // Value might span multiple lines
+            while (isContinued(line) && end < source.length())
+            {
+               line = source.substring(end, lineEnd(source, end));
+               end += line.length();
+            }
+         }
+         else
+         {
+            builder.append(line);
+         }
+         start = end;
+      }
+
+      if (!found)
+      {
+         String result = builder.length() > 0 ? SourceUtil.addNewLineAtEnd(builder.toString()) : "";
+         return result + key + "=" + escape(value) + "\n";
+      }
+      return builder.toString();
+   }
+
+   /**
+    * Removes all definitions of the property.
+    */
+   public static String removeProperty(String source, String key)
+   {
+      StringBuilder builder = new StringBuilder();
+      int start = 0;
+      while (start < source.length())
+      {
+         int end = lineEnd(source, start);
+         String line = source.substring(start, end);
+         if (!key.equals(keyOf(line)))
+         {
+            builder.append(line);
+         }
+         else
+         {
+            while (isContinued(line) && end < source.length())
+            {
+               line = source.substring(end, lineEnd(source, end));
+               end += line.length();
+            }
+         }
+         start = end;
+      }
+      return builder.toString();
+   }
+
+   /**
+    * Returns position after the end of line which starts at given position, including line terminator.
+    */
+   private static int lineEnd(String source, int start)
+   {
+      int end = source.indexOf('\n', start);
+      return end == -1 ? source.length() : end + 1;
+   }
+
+   /**
+    * Returns line without line terminator.
+    */
+   private static String lineContent(String line)
+   {
+      int end = line.length();
+      while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r'))
+      {
+         end--;
+      }
+      return line.substring(0, end);
+   }
+
+   /**
+    * Returns true if line ends with odd number of backslashes, which means that value continues in next line.
+    */
+   private static boolean isContinued(String line)
+   {
+      String content = lineContent(line);
+      int backslashes = 0;
+      for (int i = content.length() - 1; i >= 0 && content.charAt(i) == '\\'; i--)
+      {
+         backslashes++;
+      }
+      return backslashes % 2 == 1;
+   }
+
+   /**
+    * Returns key of property defined in given line, or null if the line doesn't define a property.
+    */
+   private static String keyOf(String line)
+   {
+      String trimmed = line.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("!"))
+      {
+         return null;
+      }
+      return trimmed.substring(0, keyEnd(trimmed, 0));
+   }
+
+   private static int keyEnd(String line, int start)
+   {
+      int i = start;
+      while (i < line.length())
+      {
+         char c = line.charAt(i);
+         if (c == '\\')
+         {
+            i += 2;
+            continue;
+         }
+         if (c == '=' || c == ':' || Character.isWhitespace(c))
+         {
+            break;
+         }
+         i++;
+      }
+      return Math.min(i, line.length());
+   }
+
+   /**
+    * Returns position in line where the value of the property starts, i.e. after key and separator.
+    */
+   private static int valueStart(String line)
+   {
+      int i = 0;
+      while (i < line.length() && Character.isWhitespace(line.charAt(i)))
+      {
+         i++;
+      }
+      i = keyEnd(line, i);
+      while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t'))
+      {
+         i++;
+      }
+      if (i < line.length() && (line.charAt(i) == '=' || line.charAt(i) == ':'))
+      {
+         i++;
+         while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t'))
+         {
+            i++;
+         }
+      }
+      return i;
+   }
+
+   private static String escape(String value)
+   {
+      return value.replace("\\", "\\\\").replace("\n", "\\n");
+   }
+}
@@ -6,398 +6,209 @@
  */
 package org.jboss.forge.addon.gradle.parser;
 
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.codehaus.groovy.ast.ModuleNode;
-import org.codehaus.groovy.ast.expr.ArgumentListExpression;
-import org.codehaus.groovy.ast.expr.BinaryExpression;
-import org.codehaus.groovy.ast.expr.ClosureExpression;
-import org.codehaus.groovy.ast.expr.ConstantExpression;
-import org.codehaus.groovy.ast.expr.DeclarationExpression;
-import org.codehaus.groovy.ast.expr.Expression;
-import org.codehaus.groovy.ast.expr.GStringExpression;
-import org.codehaus.groovy.ast.expr.MapEntryExpression;
-import org.codehaus.groovy.ast.expr.MapExpression;
-import org.codehaus.groovy.ast.expr.MethodCallExpression;
-import org.codehaus.groovy.ast.expr.NamedArgumentListExpression;
-import org.codehaus.groovy.ast.expr.PropertyExpression;
-import org.codehaus.groovy.ast.expr.TupleExpression;
-import org.codehaus.groovy.ast.expr.VariableExpression;
-import org.codehaus.groovy.ast.stmt.BlockStatement;
-import org.codehaus.groovy.ast.stmt.ExpressionStatement;
-import org.codehaus.groovy.ast.stmt.Statement;
-import org.codehaus.groovy.control.SourceUnit;
+import org.gradle.jarjar.com.google.common.base.Joiner;
 import org.gradle.jarjar.com.google.common.base.Optional;
 import org.gradle.jarjar.com.google.common.base.Preconditions;
-import org.gradle.jarjar.com.google.common.collect.Lists;
-import org.gradle.jarjar.com.google.common.collect.Maps;
+import org.gradle.jarjar.com.google.common.collect.ImmutableListMultimap;
+import org.gradle.jarjar.com.google.common.collect.ListMultimap;
 
 /**
  * This is a minimal groovy parser necessary to obtain information about gradle project. It can create method invocation
  * tree from given source, as gradle build configuration is invocation oriented.
+ * <p/>
+ * Sources are parsed by {@link GroovyDslParser}, Groovy compiler is used only when they contain syntax outside of
+ * the subset supported by it.
  * 
  * @author Adam Wyłuda
  */
 public class SimpleGroovyParser
 {
-   private static class PreInvocationWithClosure
-   {
-      public int lineNumber = 1;
-      public int columnNumber = 1;
-      public int lastLineNumber = 1;
-      public int lastColumnNumber = 1;
-
-      public String methodName;
-      public String stringParameter;
-      public Map<String, String> mapParameter;
+   private static final int MAX_CACHED_PARSERS = 32;
 
-      public List<InvocationWithClosure> invocationWithClosureList = Lists.newArrayList();
-      public List<InvocationWithMap> invocationWithMapList = Lists.newArrayList();
-      public List<InvocationWithString> invocationWithStringList = Lists.newArrayList();
-      public List<VariableAssignment> variableAssignmentList = Lists.newArrayList();
+   private static final char PATH_SEPARATOR = '/';
+   private static final Joiner PATH_JOINER = Joiner.on(PATH_SEPARATOR);
 
-      public InvocationWithClosure create(String source)
-      {
-         String code = source.substring(SourceUtil.positionInSource(source, lineNumber, columnNumber),
-                  SourceUtil.positionInSource(source, lastLineNumber, lastColumnNumber));
-         return new InvocationWithClosure(code, methodName, stringParameter, mapParameter,
-                  invocationWithClosureList, invocationWithStringList,
-                  invocationWithMapList, variableAssignmentList,
-                  lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
-      }
-   }
+   /**
+    * Recently parsed sources, keyed by their content. Parse trees are immutable, so they can be shared by all readers
+    * and editors of the same source.
+    */
+   private static final Map<String, SimpleGroovyParser> parserCache =
+            new LinkedHashMap<String, SimpleGroovyParser>(16, 0.75f, true)
+            {
+               private static final long serialVersionUID = 1L;
+
+               @Override
+               protected boolean removeEldestEntry(Map.Entry<String, SimpleGroovyParser> eldest)
+               {
+                  return size() > MAX_CACHED_PARSERS;
+               }
+            };
 
    private final String source;
+   private final LineIndex lineIndex;
    private final InvocationWithClosure root;
 
-   private SimpleGroovyParser(String source)
-   {
-      this.source = source;
-      root = createInvocationWithClosureRoot(source);
-   }
-
-   public static SimpleGroovyParser fromSource(String source)
-   {
-      return new SimpleGroovyParser(source);
-   }
-
-   public List<InvocationWithClosure> getInvocationsWithClosure()
-   {
-      return root.getInvocationsWithClosure();
-   }
-
-   public List<InvocationWithMap> getInvocationsWithMap()
-   {
-      return root.getInvocationsWithMap();
-   }
-
-   public List<InvocationWithString> getInvocationsWithString()
-   {
-      return root.getInvocationsWithString();
-   }
-
-   public List<VariableAssignment> getVariableAssignments()
-   {
-      return root.getVariableAssignments();
-   }
+   /**
+    * Invocations with closure by their path, like <i>dependencies</i> or <i>allprojects/dependencies</i>, in order of
+    * appearance in the source.
+    */
+   private final ListMultimap<String, InvocationWithClosure> invocationsByPath;
 
-   public Optional<InvocationWithClosure> invocationWithClosureByName(String name)
+   private SimpleGroovyParser(String source)
    {
-      return root.invocationWithClosureByName(name);
+      this(source, LineIndex.of(source));
    }
 
-   public Optional<InvocationWithString> invocationWithStringByName(String name)
+   private SimpleGroovyParser(String source, LineIndex lineIndex)
    {
-      return root.invocationWithStringByName(name);
+      this(source, lineIndex, parseTree(source, lineIndex));
    }
 
-   public Optional<InvocationWithMap> invocationWithMapByName(String name)
+   private SimpleGroovyParser(String source, LineIndex lineIndex, InvocationWithClosure root)
    {
-      return root.invocationWithMapByName(name);
-   }
+      this.source = source;
+      this.lineIndex = lineIndex;
+      this.root = root;
 
-   public Optional<VariableAssignment> variableAssignmentByName(String name)
-   {
-      return root.variableAssignmentByName(name);
+      ImmutableListMultimap.Builder<String, InvocationWithClosure> builder = ImmutableListMultimap.builder();
+      indexInvocationPaths(builder, root, "");
+      invocationsByPath = builder.build();
    }
 
-   public List<InvocationWithClosure> allInvocationsAtPath(String... path)
+   /**
+    * Returns invocation tree of given source.
+    */
+   static InvocationWithClosure parseTree(String source, LineIndex lineIndex)
    {
-      Preconditions.checkArgument(path.length > 0, "Path must have at least one element");
-      List<InvocationWithClosure> list = Lists.newArrayList();
-      allInvocationsAtPath(list, root, path);
-      return list;
+      InvocationWithClosure dslRoot = GroovyDslParser.parse(source, lineIndex);
+      // Groovy compiler is needed only for syntax which is not supported by DSL parser
+      return dslRoot != null ? dslRoot : GroovyCompilerParser.parse(source, lineIndex);
    }
 
-   private void allInvocationsAtPath(List<InvocationWithClosure> list, InvocationWithClosure invocation, String... path)
+   private static void indexInvocationPaths(ImmutableListMultimap.Builder<String, InvocationWithClosure> builder,
+            InvocationWithClosure invocation, String path)
    {
-      if (path.length == 0)
-      {
-         list.add(invocation);
-         return;
-      }
-      String name = path[0];
       for (InvocationWithClosure subinvocation : invocation.getInvocationsWithClosure())
       {
-         if (subinvocation.getMethodName().equals(name))
-         {
-            allInvocationsAtPath(list, subinvocation, Arrays.copyOfRange(path, 1, path.length));
-         }
+         String subpath = path.isEmpty() ? subinvocation.getMethodName() :
+                  path + PATH_SEPARATOR + subinvocation.getMethodName();
+         builder.put(subpath, subinvocation);
+         indexInvocationPaths(builder, subinvocation, subpath);
       }
    }
 
-   private InvocationWithClosure createInvocationWithClosureRoot(String source)
-   {
-      BlockStatement sourceBlockStatement = parseSource(source);
-      PreInvocationWithClosure root = new PreInvocationWithClosure();
-      fillInvocationFromStatement(sourceBlockStatement, root);
-      return root.create(source);
-   }
-
-   private BlockStatement parseSource(String source)
-   {
-      SourceUnit sourceUnit = SourceUnit.create("script", source);
-      sourceUnit.parse();
-      sourceUnit.nextPhase();
-      sourceUnit.convert();
-      ModuleNode moduleNode = sourceUnit.getAST();
-      return moduleNode.getStatementBlock();
-   }
-
    /**
-    * Goes through blockStatement recursively to create InvocationWithClosure tree.
+    * Returns parser of given source. Each distinct source is parsed once, as long as it is among recently parsed ones.
     */
-   private void fillInvocationFromStatement(BlockStatement blockStatement, PreInvocationWithClosure node)
+   public static SimpleGroovyParser fromSource(String source)
    {
-      for (Statement statement : blockStatement.getStatements())
+      SimpleGroovyParser parser;
+      synchronized (parserCache)
       {
-         processStatement(statement, node);
+         parser = parserCache.get(source);
       }
-   }
-
-   private void processStatement(Statement statement, PreInvocationWithClosure node)
-   {
-      // If statement is an expression like function call
-      if (statement instanceof ExpressionStatement)
+      if (parser == null)
       {
-         Expression expression = ((ExpressionStatement) statement).getExpression();
-
-         // If expression is method call
-         if (expression instanceof MethodCallExpression)
-         {
-            processMethodCallExpression(expression, node);
-         }
-
-         // If expression is binary expression, which might be variable assignment
-         if (expression instanceof BinaryExpression)
+         // Parsing is done outside of the lock, at worst the same source is parsed twice
+         parser = new SimpleGroovyParser(source);
+         synchronized (parserCache)
          {
-            processBinaryExpression((BinaryExpression) expression, node);
+            parserCache.put(source, parser);
          }
       }
+      return parser;
    }
 
-   private void processMethodCallExpression(Expression expression, PreInvocationWithClosure node)
+   /**
+    * Informs parser that edited source was created by replacing region from start to end of source. If source was
+    * recently parsed and the edit is inside of one of its top level closures, parser of edited source is created by
+    * parsing only that closure again. Otherwise edited source will be parsed as a whole when it's needed.
+    */
+   static void sourceEdited(String source, String editedSource, int start, int end)
    {
-      String methodName = ((MethodCallExpression) expression).getMethodAsString();
-
-      Expression argumentsExpression = ((MethodCallExpression) expression).getArguments();
-
-      // In case argument expression is a (G)String constant or closure
-      if (argumentsExpression instanceof ArgumentListExpression)
+      SimpleGroovyParser parser;
+      synchronized (parserCache)
       {
-         processArgumentListExpression(expression, (ArgumentListExpression) argumentsExpression, node,
-                  methodName);
+         parser = parserCache.get(source);
       }
-
-      // If argument expression is a TupleExpression then it may be a map
-      else if (argumentsExpression instanceof TupleExpression &&
-               ((TupleExpression) argumentsExpression).getExpressions().size() == 1)
+      if (parser == null)
       {
-         processTupleExpression(expression, (TupleExpression) argumentsExpression, node, methodName);
+         return;
       }
-   }
 
-   private void processArgumentListExpression(Expression expression,
-            ArgumentListExpression argumentsExpression,
-            PreInvocationWithClosure node, String methodName)
-   {
-      // If it's single argument call
-      if (argumentsExpression.getExpressions().size() == 1)
+      LineIndex editedLineIndex = LineIndex.of(editedSource);
+      int replacementLength = editedSource.length() - source.length() + (end - start);
+      InvocationWithClosure editedRoot = ParseTreeEditor.edit(parser.root, editedSource, editedLineIndex,
+               start, end, replacementLength);
+      if (editedRoot != null)
       {
-         Expression argumentExpression = argumentsExpression.getExpressions().get(0);
-
-         // If argument is a string constant
-         if (isStringOrGString(argumentExpression))
+         synchronized (parserCache)
          {
-            String string = valueFromStringOrGString(argumentExpression);
-
-            String code = source
-                     .substring(
-                              SourceUtil.positionInSource(source, expression.getLineNumber(), expression.getColumnNumber()),
-                              SourceUtil.positionInSource(source, expression.getLastLineNumber(),
-                                       expression.getLastColumnNumber()));
-            InvocationWithString invocation = new InvocationWithString(code, methodName, string,
-                     expression.getLineNumber(), expression.getColumnNumber(),
-                     expression.getLastLineNumber(), expression.getLastColumnNumber());
-            node.invocationWithStringList.add(invocation);
-         }
-
-         // If argument is a closure
-         else if (argumentExpression instanceof ClosureExpression)
-         {
-            processClosureExpression(expression, (ClosureExpression) argumentExpression, node, methodName,
-                     "", Maps.<String, String> newHashMap());
-         }
-      }
-      // If it's two argument call
-      else if (argumentsExpression.getExpressions().size() == 2)
-      {
-         Expression firstArgumentExpression = argumentsExpression.getExpressions().get(0);
-         Expression secondArgumentExpression = argumentsExpression.getExpressions().get(1);
-         
-         String stringParameter = "";
-         Map<String, String> mapParameter = Maps.newHashMap();
-         
-         if (isStringOrGString(firstArgumentExpression))
-         {
-            stringParameter = valueFromStringOrGString(firstArgumentExpression);
-         }
-         else if (firstArgumentExpression instanceof MapExpression)
-         {
-            mapParameter = mapFromMapEntryExpressions(((MapExpression) firstArgumentExpression).getMapEntryExpressions());
-         }
-         
-         if (secondArgumentExpression instanceof ClosureExpression)
-         {
-            processClosureExpression(expression, (ClosureExpression) secondArgumentExpression, node, methodName,
-                     stringParameter, mapParameter);
+            parserCache.put(editedSource, new SimpleGroovyParser(editedSource, editedLineIndex, editedRoot));
          }
       }
    }
 
-   private void processClosureExpression(Expression expression,
-            ClosureExpression closureExpression,
-            PreInvocationWithClosure node, 
-            String methodName, String stringParameter, Map<String, String> mapParameter)
+   /**
+    * Returns line index of parsed source, which can be used to find positions of parsed elements.
+    */
+   public LineIndex getLineIndex()
    {
-      BlockStatement blockStatement = (BlockStatement) (closureExpression).getCode();
-
-      PreInvocationWithClosure invocation = new PreInvocationWithClosure();
-      invocation.methodName = methodName;
-      invocation.stringParameter = stringParameter;
-      invocation.mapParameter = mapParameter;
-      
-      invocation.lineNumber = expression.getLineNumber();
-      invocation.columnNumber = expression.getColumnNumber();
-      invocation.lastLineNumber = expression.getLastLineNumber();
-      invocation.lastColumnNumber = expression.getLastColumnNumber();
-
-      fillInvocationFromStatement(blockStatement, invocation);
-      node.invocationWithClosureList.add(invocation.create(source));
+      return lineIndex;
    }
 
-   private void processTupleExpression(Expression expression,
-            TupleExpression argumentsExpression, PreInvocationWithClosure node,
-            String methodName)
+   public List<InvocationWithClosure> getInvocationsWithClosure()
    {
-      Expression argumentExpression = argumentsExpression.getExpressions().get(0);
-
-      // In case argument expression is a map
-      if (argumentExpression instanceof NamedArgumentListExpression)
-      {
-         processNamedArgumentListExpression(expression, (NamedArgumentListExpression) argumentExpression, node,
-                  methodName);
-      }
+      return root.getInvocationsWithClosure();
    }
 
-   private void processNamedArgumentListExpression(Expression expression,
-            NamedArgumentListExpression argumentListExpression,
-            PreInvocationWithClosure node, String methodName)
+   public List<InvocationWithMap> getInvocationsWithMap()
    {
-      Map<String, String> parameters = mapFromMapEntryExpressions(argumentListExpression.getMapEntryExpressions());
-      String code = source.substring(
-               SourceUtil.positionInSource(source, expression.getLineNumber(), expression.getColumnNumber()),
-               SourceUtil.positionInSource(source, expression.getLastLineNumber(), expression.getLastColumnNumber()));
-      InvocationWithMap invocation = new InvocationWithMap(code, methodName, parameters,
-               expression.getLineNumber(), expression.getColumnNumber(),
-               expression.getLineNumber(), expression.getLastColumnNumber());
-      node.invocationWithMapList.add(invocation);
+      return root.getInvocationsWithMap();
    }
 
-   private void processBinaryExpression(BinaryExpression expression, PreInvocationWithClosure node)
+   public List<InvocationWithString> getInvocationsWithString()
    {
-      // This condition must be true to be string variable assignment
-      // but not new variable declaration
-      if (!(expression instanceof DeclarationExpression) &&
-               (expression.getLeftExpression() instanceof VariableExpression ||
-               expression.getLeftExpression() instanceof PropertyExpression) &&
-               expression.getOperation().getText().toString().equals("=") &&
-               isStringOrGString(expression.getRightExpression()))
-      {
-         String variable = expression.getLeftExpression().getText();
-         String value = valueFromStringOrGString(expression.getRightExpression());
-
-         int lineNumber = expression.getLineNumber();
-         int columnNumber = expression.getColumnNumber();
-         int lastLineNumber = expression.getLastLineNumber();
-         int lastColumnNumber = expression.getLastColumnNumber();
+      return root.getInvocationsWithString();
+   }
 
-         String code = source.substring(SourceUtil.positionInSource(source, lineNumber, columnNumber),
-                  SourceUtil.positionInSource(source, lastLineNumber, lastColumnNumber));
-         VariableAssignment variableAssignment =
-                  new VariableAssignment(code, variable, value,
-                           lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
-         node.variableAssignmentList.add(variableAssignment);
-      }
+   public List<VariableAssignment> getVariableAssignments()
+   {
+      return root.getVariableAssignments();
    }
 
-   private Map<String, String> mapFromMapEntryExpressions(List<MapEntryExpression> mapEntries)
+   public Optional<InvocationWithClosure> invocationWithClosureByName(String name)
    {
-      Map<String, String> map = new HashMap<>();
-      for (MapEntryExpression mapEntryExpression : mapEntries)
-      {
-         Expression keyExpression = mapEntryExpression.getKeyExpression();
-         Expression valueExpression = mapEntryExpression.getValueExpression();
-         if (keyExpression instanceof ConstantExpression &&
-                  isStringOrGString(valueExpression))
-         {
-            String key = ((ConstantExpression) keyExpression).getValue().toString();
-            String value = valueFromStringOrGString(valueExpression);
-            map.put(key, value);
-         }
-      }
-      return map;
+      return root.invocationWithClosureByName(name);
    }
 
-   private String valueFromStringOrGString(Expression expression)
+   public Optional<InvocationWithString> invocationWithStringByName(String name)
    {
-      if (isString(expression))
-      {
-         return (String) ((ConstantExpression) expression).getValue();
-      }
-      else if (isGString(expression))
-      {
-         return ((GStringExpression) expression).getText();
-      }
-      throw new IllegalArgumentException("Given expression is neither String nor GString expression");
+      return root.invocationWithStringByName(name);
    }
 
-   private boolean isStringOrGString(Expression expression)
+   public Optional<InvocationWithMap> invocationWithMapByName(String name)
    {
-      return isString(expression) || isGString(expression);
+      return root.invocationWithMapByName(name);
    }
 
-   private boolean isString(Expression expression)
+   public Optional<VariableAssignment> variableAssignmentByName(String name)
    {
-      return expression instanceof ConstantExpression &&
-               ((ConstantExpression) expression).getValue() instanceof String;
+      return root.variableAssignmentByName(name);
    }
 
-   private boolean isGString(Expression expression)
+   /**
+    * Returns all invocations with closure at given path, in order of appearance in the source. Returned list is
+    * immutable.
+    */
+   public List<InvocationWithClosure> allInvocationsAtPath(String... path)
    {
-      return expression instanceof GStringExpression;
+      Preconditions.checkArgument(path.length > 0, "Path must have at least one element");
+      String key = path.length == 1 ? path[0] : PATH_JOINER.join(path);
+      return invocationsByPath.get(key);
    }
 }
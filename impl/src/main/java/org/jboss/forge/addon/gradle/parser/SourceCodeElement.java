@@ -7,28 +7,52 @@
 package org.jboss.forge.addon.gradle.parser;
 
 /**
+ * Element of parsed source. It keeps only positions of its code in the source shared by all elements of a parse tree,
+ * so nested elements don't hold copies of the same text.
+ * 
  * @author Adam Wyłuda
  */
 public abstract class SourceCodeElement
 {
-   private final String code;
+   private final String source;
+   private final int startPosition;
+   private final int endPosition;
    private final int lineNumber;
    private final int columnNumber;
    private final int lastLineNumber;
    private final int lastColumnNumber;
 
-   public SourceCodeElement(String code, int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
+   /**
+    * Creates element whose code spans from start position (inclusive) to end position (exclusive) of given source.
+    */
+   public SourceCodeElement(String source, int startPosition, int endPosition,
+            int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
    {
-      this.code = code;
+      this.source = source;
+      this.startPosition = startPosition;
+      this.endPosition = endPosition;
       this.lineNumber = lineNumber;
       this.columnNumber = columnNumber;
       this.lastLineNumber = lastLineNumber;
       this.lastColumnNumber = lastColumnNumber;
    }
    
+   /**
+    * Returns code of this element, it is taken from the source on every call.
+    */
    public String getCode()
    {
-      return code;
+      return source.substring(startPosition, endPosition);
+   }
+
+   public int getStartPosition()
+   {
+      return startPosition;
+   }
+
+   public int getEndPosition()
+   {
+      return endPosition;
    }
 
    public int getLineNumber()
@@ -11,7 +11,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.gradle.jarjar.com.google.common.base.Optional;
-import org.gradle.jarjar.com.google.common.base.Preconditions;
 
 /**
  * @author Adam Wyłuda
@@ -30,8 +29,7 @@ public class SourceUtil
     */
    public static String insertString(String source, String string, int lineNumber, int columnNumber)
    {
-      int position = positionInSource(source, lineNumber, columnNumber);
-      return source.substring(0, position) + string + source.substring(position);
+      return insertString(source, string, positionInSource(source, lineNumber, columnNumber));
    }
 
    /**
@@ -39,7 +37,18 @@ public class SourceUtil
     */
    public static String insertString(String source, String string, int position)
    {
-      return source.substring(0, position) + string + source.substring(position);
+      return replaceSourceFragment(source, position, position, string);
+   }
+
+   /**
+    * Replaces region from start to end of source with replacement.
+    */
+   public static String replaceSourceFragment(String source, int start, int end, String replacement)
+   {
+      String editedSource = source.substring(0, start) + replacement + source.substring(end);
+      // Most edits are made inside of a single closure, so the parse tree of source can be partially reused
+      SimpleGroovyParser.sourceEdited(source, editedSource, start, end);
+      return editedSource;
    }
 
    /**
@@ -49,29 +58,7 @@ public class SourceUtil
     */
    public static int positionInSource(String source, int lineNumber, int columnNumber)
    {
-      Preconditions.checkArgument(lineNumber >= 1, "Line number must be greater than 0");
-      Preconditions.checkArgument(columnNumber >= 1, "Column number must be greater than 0");
-
-      // Position is indexed from 1, arrays are indexed from 0, so we fix it
-      lineNumber--;
-      columnNumber--;
-
-      String[] sourceLines = source.split("\n");
-
-      Preconditions.checkArgument(lineNumber < sourceLines.length, "Given line number exceeds line count");
-      Preconditions.checkArgument(columnNumber <= sourceLines[lineNumber].length(),
-               "Given column number exceeds column count in line");
-
-      int precedingCharactersCount = 0;
-      for (int lineIndex = 0; lineIndex < lineNumber; lineIndex++)
-      {
-         // Add length of the line plus one, which counts for end line character
-         precedingCharactersCount += sourceLines[lineIndex].length() + 1;
-      }
-
-      // Position is sum of character count in preceding lines and given column number
-      int position = precedingCharactersCount + columnNumber;
-      return position;
+      return LineIndex.of(source).position(lineNumber, columnNumber);
    }
 
    public static String removeSourceFragment(String source, SourceCodeElement element)
@@ -83,14 +70,15 @@ public class SourceUtil
    public static String removeSourceFragment(String source, int lineNumber, int columnNumber,
             int lastLineNumber, int lastColumnNumber)
    {
-      int beginningPosition = positionInSource(source, lineNumber, columnNumber);
-      int endingPosition = positionInSource(source, lastLineNumber, lastColumnNumber);
+      LineIndex lineIndex = LineIndex.of(source);
+      int beginningPosition = lineIndex.position(lineNumber, columnNumber);
+      int endingPosition = lineIndex.position(lastLineNumber, lastColumnNumber);
       return removeSourceFragment(source, beginningPosition, endingPosition);
    }
 
    public static String removeSourceFragment(String source, int start, int end)
    {
-      return source.substring(0, start) + source.substring(end);
+      return replaceSourceFragment(source, start, end, "");
    }
 
    /**
@@ -108,8 +96,9 @@ public class SourceUtil
    public static String removeSourceFragmentWithLine(String source, int lineNumber, int columnNumber,
             int lastLineNumber, int lastColumnNumber)
    {
-      int beginningPosition = positionInSource(source, lineNumber, columnNumber);
-      int endingPosition = positionInSource(source, lastLineNumber, lastColumnNumber);
+      LineIndex lineIndex = LineIndex.of(source);
+      int beginningPosition = lineIndex.position(lineNumber, columnNumber);
+      int endingPosition = lineIndex.position(lastLineNumber, lastColumnNumber);
       return removeSourceFragmentWithLine(source, beginningPosition, endingPosition);
    }
 
@@ -132,7 +121,7 @@ public class SourceUtil
       start -= precedingWhitespace.length();
       end += succeedingWhitespace.length();
 
-      return source.substring(0, start) + "\n" + source.substring(end);
+      return replaceSourceFragment(source, start, end, "\n");
    }
 
    /**
@@ -140,8 +129,9 @@ public class SourceUtil
     */
    public static String appendCodeToClosure(String source, InvocationWithClosure invocation, String codeToBeInserted)
    {
+      LineIndex lineIndex = LineIndex.of(source);
       String sourceToInvocation = source.substring(0,
-               positionInSource(source, invocation.getLineNumber(), invocation.getColumnNumber()));
+               lineIndex.position(invocation.getLineNumber(), invocation.getColumnNumber()));
       String invocationIndentation = sourceToInvocation.substring(sourceToInvocation.lastIndexOf("\n") + 1);
 
       String insertedCode = INDENT;
@@ -149,10 +139,9 @@ public class SourceUtil
       insertedCode = addNewLineAtEnd(insertedCode);
       insertedCode += invocationIndentation;
 
-      return insertString(source,
-               insertedCode,
-               invocation.getLastLineNumber(),
-               fixClosureColumn(source, invocation.getLastLineNumber(), invocation.getLastColumnNumber()) - 1);
+      int lastColumnNumber = fixClosureColumn(source, lineIndex, invocation.getLastLineNumber(),
+               invocation.getLastColumnNumber());
+      return insertString(source, insertedCode, lineIndex.position(invocation.getLastLineNumber(), lastColumnNumber - 1));
    }
 
    /**
@@ -290,7 +279,12 @@ public class SourceUtil
     */
    public static int fixClosureColumn(String code, int lineNumber, int columnNumber)
    {
-      String codeBefore = code.substring(0, positionInSource(code, lineNumber, columnNumber));
+      return fixClosureColumn(code, LineIndex.of(code), lineNumber, columnNumber);
+   }
+
+   private static int fixClosureColumn(String code, LineIndex lineIndex, int lineNumber, int columnNumber)
+   {
+      String codeBefore = code.substring(0, lineIndex.position(lineNumber, columnNumber));
       Matcher matcher = PRECEDING_WHITESPACE_PATTERN.matcher(codeBefore);
       matcher.find();
       int whitespaces = matcher.group().length();
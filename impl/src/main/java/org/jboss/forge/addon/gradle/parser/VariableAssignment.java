@@ -16,10 +16,11 @@ public class VariableAssignment extends SourceCodeElement
    private final String variable;
    private final String value;
 
-   public VariableAssignment(String code, String variable, String value, 
+   public VariableAssignment(String source, int startPosition, int endPosition,
+            String variable, String value,
             int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
    {
-      super(code, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      super(source, startPosition, endPosition, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
       
       this.variable = variable;
       this.value = value;
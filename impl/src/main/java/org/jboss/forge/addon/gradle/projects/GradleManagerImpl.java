@@ -13,15 +13,30 @@ import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ModelBuilder;
 import org.gradle.tooling.ProjectConnection;
 import org.gradle.tooling.ResultHandler;
+import org.jboss.forge.addon.gradle.model.GradleBuildFingerprint;
 import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelDelta;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModel;
+import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
 import org.jboss.forge.furnace.util.Strings;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author Adam Wyłuda
@@ -112,20 +127,149 @@ public class GradleManagerImpl implements GradleManager
 
    @Override
    public GradleModel buildModel(String directory, String forgeScriptLocation, String forgePluginVersion)
+   {
+      return buildModel(directory, forgeScriptLocation, forgePluginVersion, null);
+   }
+
+   @Override
+   public GradleModel buildModel(String directory, String forgeScriptLocation, String forgePluginVersion,
+            String modelFingerprint)
+   {
+      return fetchModel(GradleModel.class, directory, forgeScriptLocation, forgePluginVersion, modelFingerprint);
+   }
+
+   @Override
+   public GradleModelDelta buildModelDelta(String directory, String forgeScriptLocation, String forgePluginVersion,
+            String modelFingerprint)
+   {
+      return fetchModel(GradleModelDelta.class, directory, forgeScriptLocation, forgePluginVersion, modelFingerprint);
+   }
+
+   @Override
+   public GradleMultiProjectModel buildMultiProjectModel(String directory, String forgeScriptLocation,
+            String forgePluginVersion)
+   {
+      return fetchModel(GradleMultiProjectModel.class, directory, forgeScriptLocation, forgePluginVersion, null);
+   }
+
+   @Override
+   public Map<String, GradleMultiProjectModel> buildCompositeModel(String directory,
+            final String forgeScriptLocation, final String forgePluginVersion)
+   {
+      File rootDir = GradleBuildFingerprint.findRootDir(new File(directory));
+      Set<File> builds = new LinkedHashSet<File>();
+      collectBuilds(rootDir, builds);
+
+      int threads = Math.min(builds.size(), Runtime.getRuntime().availableProcessors());
+      ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+      try
+      {
+         Map<String, Future<GradleMultiProjectModel>> futures =
+                  new LinkedHashMap<String, Future<GradleMultiProjectModel>>();
+         for (final File build : builds)
+         {
+            futures.put(build.getPath(), executor.submit(new Callable<GradleMultiProjectModel>()
+            {
+               @Override
+               public GradleMultiProjectModel call()
+               {
+                  return buildMultiProjectModel(build.getPath(), forgeScriptLocation, forgePluginVersion);
+               }
+            }));
+         }
+
+         Map<String, GradleMultiProjectModel> models = new LinkedHashMap<String, GradleMultiProjectModel>();
+         for (Map.Entry<String, Future<GradleMultiProjectModel>> entry : futures.entrySet())
+         {
+            models.put(entry.getKey(), entry.getValue().get());
+         }
+         return models;
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted while building composite model", e);
+      }
+      catch (ExecutionException e)
+      {
+         if (e.getCause() instanceof RuntimeException)
+         {
+            throw (RuntimeException) e.getCause();
+         }
+         throw new IllegalStateException("Couldn't build composite model", e.getCause());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * Adds given build and all builds included by it to the set.
+    */
+   private void collectBuilds(File rootDir, Set<File> builds)
+   {
+      File build = canonicalFile(rootDir);
+      if (!builds.add(build))
+      {
+         return;
+      }
+
+      File settingsScript = new File(build, GradleBuildFingerprint.SETTINGS_SCRIPT);
+      if (!settingsScript.isFile())
+      {
+         return;
+      }
+      String settings;
+      try
+      {
+         settings = new String(Files.readAllBytes(settingsScript.toPath()), StandardCharsets.UTF_8);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Couldn't read " + settingsScript, e);
+      }
+
+      for (String includedBuild : GradleSourceUtil.getIncludedBuilds(settings))
+      {
+         File includedDir = new File(includedBuild);
+         collectBuilds(includedDir.isAbsolute() ? includedDir : new File(build, includedBuild), builds);
+      }
+   }
+
+   private File canonicalFile(File file)
+   {
+      try
+      {
+         return file.getCanonicalFile();
+      }
+      catch (IOException e)
+      {
+         return file.getAbsoluteFile();
+      }
+   }
+
+   private <T> T fetchModel(Class<T> modelType, String directory, String forgeScriptLocation,
+            String forgePluginVersion, String modelFingerprint)
    {
       GradleConnector connector = GradleConnector.newConnector().newConnector()
                .forProjectDirectory(new File(directory));
       ProjectConnection connection = null;
-      GradleModel model = null;
+      T model = null;
 
       try
       {
          connection = connector.connect();
 
-         ModelBuilder<GradleModel> gradleModelBuilder = connection.model(GradleModel.class);
-         gradleModelBuilder.withArguments(
+         ModelBuilder<T> gradleModelBuilder = connection.model(modelType);
+         List<String> arguments = Lists.newArrayList(
                   "-DforgePluginVersion=" + forgePluginVersion,
                   "--init-script", forgeScriptLocation);
+         if (!Strings.isNullOrEmpty(modelFingerprint))
+         {
+            arguments.add("-DforgeModelFingerprint=" + modelFingerprint);
+         }
+         gradleModelBuilder.withArguments(arguments.toArray(new String[arguments.size()]));
 
          model = gradleModelBuilder.get();
       }
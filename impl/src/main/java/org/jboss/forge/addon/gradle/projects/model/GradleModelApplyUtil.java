@@ -0,0 +1,322 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.jarjar.com.google.common.collect.Lists;
+import org.gradle.jarjar.com.google.common.collect.Maps;
+import org.jboss.forge.addon.gradle.model.GradleDependency;
+import org.jboss.forge.addon.gradle.model.GradleDependencyBuilder;
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.model.GradleModelDeltaBuilder;
+import org.jboss.forge.addon.gradle.model.GradlePlugin;
+import org.jboss.forge.addon.gradle.model.GradlePluginBuilder;
+import org.jboss.forge.addon.gradle.model.GradleRepository;
+import org.jboss.forge.addon.gradle.model.GradleRepositoryBuilder;
+import org.jboss.forge.addon.gradle.model.GradleTask;
+import org.jboss.forge.addon.gradle.model.GradleTaskBuilder;
+import org.jboss.forge.furnace.util.Strings;
+
+/**
+ * Applies changes made to the model directly to its effective part, the way Gradle would apply them after evaluating
+ * the merged script. Result is an estimate which is valid until the model is evaluated again. Changes made to an older
+ * version of the model can also be rebased onto its current version.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleModelApplyUtil
+{
+   public static final String PROJECT = "project";
+   public static final String TASKS = "tasks";
+   public static final String DEPENDENCIES = "dependencies";
+   public static final String MANAGED_DEPENDENCIES = "managedDependencies";
+   public static final String PLUGINS = "plugins";
+   public static final String REPOSITORIES = "repositories";
+   public static final String PROPERTIES = "properties";
+
+   private GradleModelApplyUtil()
+   {
+   }
+
+   /**
+    * Returns copy of the model with changes between old and new model applied to its effective part.
+    */
+   public static GradleModelBuilder apply(GradleModel model, GradleModel oldModel, GradleModel newModel)
+   {
+      GradleModelBuilder result = GradleModelBuilder.create(model)
+               .setGroup(newModel.getGroup())
+               .setName(newModel.getName())
+               .setVersion(newModel.getVersion())
+               .setPackaging(newModel.getPackaging())
+               .setArchiveName(newModel.getArchiveName())
+               .setSourceCompatibility(newModel.getSourceCompatibility())
+               .setTargetCompatibility(newModel.getTargetCompatiblity());
+
+      result.setEffectiveTasks(GradleTaskBuilder.deepCopy(
+               TASK_KEY.apply(model.getEffectiveTasks(), oldModel.getTasks(), newModel.getTasks())));
+      result.setEffectiveDependencies(GradleDependencyBuilder.deepCopy(DEPENDENCY_KEY.apply(
+               model.getEffectiveDependencies(), oldModel.getDependencies(), newModel.getDependencies())));
+      result.setEffectiveManagedDependencies(GradleDependencyBuilder.deepCopy(DEPENDENCY_KEY.apply(
+               model.getEffectiveManagedDependencies(), oldModel.getManagedDependencies(),
+               newModel.getManagedDependencies())));
+      result.setEffectivePlugins(GradlePluginBuilder.deepCopy(
+               PLUGIN_KEY.apply(model.getEffectivePlugins(), oldModel.getPlugins(), newModel.getPlugins())));
+      result.setEffectiveRepositories(GradleRepositoryBuilder.deepCopy(REPOSITORY_KEY.apply(
+               model.getEffectiveRepositories(), oldModel.getRepositories(), newModel.getRepositories())));
+
+      Map<String, String> properties = Maps.newHashMap(model.getEffectiveProperties());
+      for (String key : oldModel.getProperties().keySet())
+      {
+         if (!newModel.getProperties().containsKey(key))
+         {
+            properties.remove(key);
+         }
+      }
+      properties.putAll(newModel.getProperties());
+      result.setEffectiveProperties(properties);
+
+      return result;
+   }
+
+   /**
+    * Returns copy of the model with changes between old and new model applied to its direct part. Entries which were
+    * added to or removed from the model since the old model was read are kept, unless the new model changes them too.
+    */
+   public static GradleModelBuilder rebase(GradleModel model, GradleModel oldModel, GradleModel newModel)
+   {
+      GradleModelBuilder result = GradleModelBuilder.create(model)
+               .setGroup(rebase(model.getGroup(), oldModel.getGroup(), newModel.getGroup()))
+               .setName(rebase(model.getName(), oldModel.getName(), newModel.getName()))
+               .setVersion(rebase(model.getVersion(), oldModel.getVersion(), newModel.getVersion()))
+               .setPackaging(rebase(model.getPackaging(), oldModel.getPackaging(), newModel.getPackaging()))
+               .setArchiveName(rebase(model.getArchiveName(), oldModel.getArchiveName(), newModel.getArchiveName()))
+               .setSourceCompatibility(rebase(model.getSourceCompatibility(), oldModel.getSourceCompatibility(),
+                        newModel.getSourceCompatibility()))
+               .setTargetCompatibility(rebase(model.getTargetCompatiblity(), oldModel.getTargetCompatiblity(),
+                        newModel.getTargetCompatiblity()));
+
+      result.setTasks(GradleTaskBuilder.deepCopy(
+               TASK_KEY.rebase(model.getTasks(), oldModel.getTasks(), newModel.getTasks())));
+      result.setDependencies(GradleDependencyBuilder.deepCopy(DEPENDENCY_KEY.rebase(
+               model.getDependencies(), oldModel.getDependencies(), newModel.getDependencies())));
+      result.setManagedDependencies(GradleDependencyBuilder.deepCopy(DEPENDENCY_KEY.rebase(
+               model.getManagedDependencies(), oldModel.getManagedDependencies(), newModel.getManagedDependencies())));
+      result.setPlugins(GradlePluginBuilder.deepCopy(
+               PLUGIN_KEY.rebase(model.getPlugins(), oldModel.getPlugins(), newModel.getPlugins())));
+      result.setRepositories(GradleRepositoryBuilder.deepCopy(
+               REPOSITORY_KEY.rebase(model.getRepositories(), oldModel.getRepositories(), newModel.getRepositories())));
+
+      Map<String, String> properties = Maps.newHashMap(model.getProperties());
+      for (String key : oldModel.getProperties().keySet())
+      {
+         if (!newModel.getProperties().containsKey(key))
+         {
+            properties.remove(key);
+         }
+      }
+      for (Map.Entry<String, String> property : newModel.getProperties().entrySet())
+      {
+         if (!Strings.compare(property.getValue(), oldModel.getProperties().get(property.getKey())))
+         {
+            properties.put(property.getKey(), property.getValue());
+         }
+      }
+      result.setProperties(properties);
+
+      return result;
+   }
+
+   private static String rebase(String value, String oldValue, String newValue)
+   {
+      return Strings.compare(oldValue, newValue) ? value : newValue;
+   }
+
+   /**
+    * Returns names of the sections which differ between old and new model.
+    */
+   public static Set<String> changedSections(GradleModel oldModel, GradleModel newModel)
+   {
+      Set<String> sections = new LinkedHashSet<String>();
+      if (!Strings.compare(oldModel.getGroup(), newModel.getGroup())
+               || !Strings.compare(oldModel.getName(), newModel.getName())
+               || !Strings.compare(oldModel.getVersion(), newModel.getVersion())
+               || !Strings.compare(oldModel.getPackaging(), newModel.getPackaging())
+               || !Strings.compare(oldModel.getArchiveName(), newModel.getArchiveName())
+               || !Strings.compare(oldModel.getSourceCompatibility(), newModel.getSourceCompatibility())
+               || !Strings.compare(oldModel.getTargetCompatiblity(), newModel.getTargetCompatiblity()))
+      {
+         sections.add(PROJECT);
+      }
+      if (TASK_KEY.changed(oldModel.getTasks(), newModel.getTasks()))
+      {
+         sections.add(TASKS);
+      }
+      if (DEPENDENCY_KEY.changed(oldModel.getDependencies(), newModel.getDependencies()))
+      {
+         sections.add(DEPENDENCIES);
+      }
+      if (DEPENDENCY_KEY.changed(oldModel.getManagedDependencies(), newModel.getManagedDependencies()))
+      {
+         sections.add(MANAGED_DEPENDENCIES);
+      }
+      if (PLUGIN_KEY.changed(oldModel.getPlugins(), newModel.getPlugins()))
+      {
+         sections.add(PLUGINS);
+      }
+      if (REPOSITORY_KEY.changed(oldModel.getRepositories(), newModel.getRepositories()))
+      {
+         sections.add(REPOSITORIES);
+      }
+      if (!oldModel.getProperties().equals(newModel.getProperties()))
+      {
+         sections.add(PROPERTIES);
+      }
+      return sections;
+   }
+
+   /**
+    * Identifies entries of a model section, so they can be matched between models.
+    */
+   private static abstract class Key<T>
+   {
+      abstract String of(T entry);
+
+      /**
+       * Returns effective entries without entries removed from direct model, and with entries added to (or changed
+       * in) direct model.
+       */
+      List<T> apply(List<T> effective, List<T> oldDirect, List<T> newDirect)
+      {
+         Map<String, T> oldEntries = index(oldDirect);
+         Map<String, T> newEntries = index(newDirect);
+
+         Map<String, T> result = index(effective);
+         for (String key : oldEntries.keySet())
+         {
+            if (!newEntries.containsKey(key))
+            {
+               result.remove(key);
+            }
+         }
+         result.putAll(newEntries);
+         return Lists.newArrayList(result.values());
+      }
+
+      /**
+       * Returns entries without entries removed between old and new list, and with entries added between them.
+       */
+      List<T> rebase(List<T> entries, List<T> oldEntries, List<T> newEntries)
+      {
+         Map<String, T> oldIndex = index(oldEntries);
+         Map<String, T> newIndex = index(newEntries);
+
+         Map<String, T> result = index(entries);
+         for (String key : oldIndex.keySet())
+         {
+            if (!newIndex.containsKey(key))
+            {
+               result.remove(key);
+            }
+         }
+         for (Map.Entry<String, T> entry : newIndex.entrySet())
+         {
+            if (!oldIndex.containsKey(entry.getKey()))
+            {
+               result.put(entry.getKey(), entry.getValue());
+            }
+         }
+         return Lists.newArrayList(result.values());
+      }
+
+      boolean changed(List<T> oldEntries, List<T> newEntries)
+      {
+         return !index(oldEntries).keySet().equals(index(newEntries).keySet());
+      }
+
+      private Map<String, T> index(List<T> entries)
+      {
+         Map<String, T> map = new LinkedHashMap<String, T>();
+         for (T entry : entries)
+         {
+            map.put(of(entry), entry);
+         }
+         return map;
+      }
+   }
+
+   private static final Key<GradleTask> TASK_KEY = new Key<GradleTask>()
+   {
+      @Override
+      String of(GradleTask task)
+      {
+         return task.getName();
+      }
+   };
+
+   private static final Key<GradleDependency> DEPENDENCY_KEY = new Key<GradleDependency>()
+   {
+      @Override
+      String of(GradleDependency dep)
+      {
+         // Version is part of the key, so version changes are detected as well
+         return GradleModelDeltaBuilder.dependencyKey(dep) + ":" + dep.getVersion();
+      }
+
+      @Override
+      List<GradleDependency> apply(List<GradleDependency> effective, List<GradleDependency> oldDirect,
+               List<GradleDependency> newDirect)
+      {
+         // Effective dependency is replaced by direct one in other version
+         List<GradleDependency> result = Lists.newArrayList();
+         for (GradleDependency dep : super.apply(effective, oldDirect, newDirect))
+         {
+            if (newDirect.contains(dep) || !hasOtherVersion(dep, newDirect))
+            {
+               result.add(dep);
+            }
+         }
+         return result;
+      }
+
+      private boolean hasOtherVersion(GradleDependency dep, List<GradleDependency> deps)
+      {
+         for (GradleDependency other : deps)
+         {
+            if (GradleModelDeltaBuilder.dependencyKey(dep).equals(GradleModelDeltaBuilder.dependencyKey(other))
+                     && !Strings.compare(dep.getVersion(), other.getVersion()))
+            {
+               return true;
+            }
+         }
+         return false;
+      }
+   };
+
+   private static final Key<GradlePlugin> PLUGIN_KEY = new Key<GradlePlugin>()
+   {
+      @Override
+      String of(GradlePlugin plugin)
+      {
+         return plugin.getClazz();
+      }
+   };
+
+   private static final Key<GradleRepository> REPOSITORY_KEY = new Key<GradleRepository>()
+   {
+      @Override
+      String of(GradleRepository repo)
+      {
+         return repo.getUrl();
+      }
+   };
+}
@@ -7,15 +7,13 @@
 package org.jboss.forge.addon.gradle.projects.model;
 
 import org.gradle.jarjar.com.google.common.collect.Lists;
+import org.gradle.jarjar.com.google.common.collect.Maps;
 import org.jboss.forge.addon.gradle.model.GradleDependency;
 import org.jboss.forge.addon.gradle.model.GradleModel;
 import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
-import org.jboss.forge.addon.gradle.model.GradlePlugin;
-import org.jboss.forge.addon.gradle.model.GradleRepository;
-import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
+import org.jboss.forge.addon.gradle.parser.GradleScriptIndex;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author Adam Wyłuda
@@ -40,38 +38,16 @@ public class GradleModelLoadUtil
 
    private static void loadDirectModel(GradleModelBuilder builder, String script)
    {
-      builder.setDependencies(depsFromScript(script));
-      builder.setManagedDependencies(managedDepsFromScript(script));
-      builder.setPlugins(pluginsFromScript(script));
-      builder.setRepositories(reposFromScript(script));
-      builder.setProperties(propertiesFromScript(script));
-   }
+      // All parts of direct model are read from one index of the script
+      GradleScriptIndex index = GradleScriptIndex.of(script);
 
-   private static List<GradleDependency> depsFromScript(String script)
-   {
       List<GradleDependency> deps = Lists.newArrayList();
-      deps.addAll(GradleSourceUtil.getDependencies(script));
-      deps.addAll(GradleSourceUtil.getDirectDependencies(script));
-      return deps;
-   }
-
-   private static List<GradleDependency> managedDepsFromScript(String script)
-   {
-      return GradleSourceUtil.getManagedDependencies(script);
-   }
-
-   private static List<GradlePlugin> pluginsFromScript(String script)
-   {
-      return GradleSourceUtil.getPlugins(script);
-   }
-
-   private static List<GradleRepository> reposFromScript(String script)
-   {
-      return GradleSourceUtil.getRepositories(script);
-   }
-
-   private static Map<String, String> propertiesFromScript(String script)
-   {
-      return GradleSourceUtil.getDirectProperties(script);
+      deps.addAll(GradleScriptIndex.values(index.getDependencies()));
+      deps.addAll(GradleScriptIndex.values(index.getDirectDependencies()));
+      builder.setDependencies(deps);
+      builder.setManagedDependencies(GradleScriptIndex.values(index.getManagedDependencies()));
+      builder.setPlugins(GradleScriptIndex.values(index.getPlugins()));
+      builder.setRepositories(GradleScriptIndex.values(index.getRepositories()));
+      builder.setProperties(Maps.newHashMap(index.getDirectProperties()));
    }
 }
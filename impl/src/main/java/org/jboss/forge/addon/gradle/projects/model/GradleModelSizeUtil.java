@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleSourceSet;
+import org.jboss.forge.addon.gradle.model.GradleTask;
+
+/**
+ * Estimates memory taken by models. Estimates are rough, they are meant for keeping caches of models within their
+ * budget, not for exact accounting.
+ *
+ * @author Adam Wyłuda
+ */
+public class GradleModelSizeUtil
+{
+   // Sizes of objects in bytes, including their fields and references to them
+   private static final long MODEL_SIZE = 512;
+   private static final long ENTRY_SIZE = 64;
+   private static final long CHAR_SIZE = 2;
+
+   private GradleModelSizeUtil()
+   {
+   }
+
+   /**
+    * Returns estimated size of the model in bytes.
+    */
+   public static long estimateSize(GradleModel model)
+   {
+      long size = MODEL_SIZE;
+      size += tasksSize(model.getTasks()) + tasksSize(model.getEffectiveTasks());
+      size += entriesSize(model.getDependencies()) + entriesSize(model.getEffectiveDependencies());
+      size += entriesSize(model.getManagedDependencies()) + entriesSize(model.getEffectiveManagedDependencies());
+      size += entriesSize(model.getPlugins()) + entriesSize(model.getEffectivePlugins());
+      size += entriesSize(model.getRepositories()) + entriesSize(model.getEffectiveRepositories());
+      size += propertiesSize(model.getProperties()) + propertiesSize(model.getEffectiveProperties());
+      for (GradleSourceSet sourceSet : model.getEffectiveSourceSets())
+      {
+         size += ENTRY_SIZE + entriesSize(sourceSet.getJavaDirectories())
+                  + entriesSize(sourceSet.getResourceDirectories());
+         size += stringsSize(sourceSet.getCompileClasspath()) + stringsSize(sourceSet.getRuntimeClasspath());
+      }
+      return size;
+   }
+
+   private static long tasksSize(List<GradleTask> tasks)
+   {
+      long size = 0;
+      for (GradleTask task : tasks)
+      {
+         size += ENTRY_SIZE + stringSize(task.getName()) + stringSize(task.getCode());
+         size += stringsSize(task.getInputFiles()) + stringsSize(task.getOutputFiles());
+         // Tasks it depends on are counted as references only
+         size += task.getDependsOn().size() * ENTRY_SIZE;
+      }
+      return size;
+   }
+
+   /**
+    * Returns size of entries made of a few short strings, like dependencies or plugins.
+    */
+   private static long entriesSize(List<?> entries)
+   {
+      return entries.size() * ENTRY_SIZE * 4;
+   }
+
+   private static long propertiesSize(Map<String, String> properties)
+   {
+      long size = 0;
+      for (Map.Entry<String, String> entry : properties.entrySet())
+      {
+         size += ENTRY_SIZE + stringSize(entry.getKey()) + stringSize(entry.getValue());
+      }
+      return size;
+   }
+
+   private static long stringsSize(List<String> strings)
+   {
+      long size = 0;
+      for (String string : strings)
+      {
+         size += stringSize(string);
+      }
+      return size;
+   }
+
+   private static long stringSize(String string)
+   {
+      return string == null ? 0 : ENTRY_SIZE + string.length() * CHAR_SIZE;
+   }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.*;
+
+import org.jboss.forge.addon.gradle.model.GradleDependency;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleScriptIndexTest
+{
+   @Test
+   public void testIndexScript()
+   {
+      String source = "" +
+               "apply from: 'forge.gradle'\n" +
+               "apply plugin: 'java'\n" +
+               "ext.prop = 'value'\n" +
+               "repositories {\n" +
+               "    maven {\n" +
+               "        url 'http://repo.example.org/'\n" +
+               "    }\n" +
+               "}\n" +
+               "allprojects {\n" +
+               "    dependencies {\n" +
+               "        managed configuration: 'compile', group: 'm', name: 'n', version: '1.0'\n" +
+               "    }\n" +
+               "}\n" +
+               "dependencies {\n" +
+               "    compile 'a:b:1.0'\n" +
+               "    direct group: 'd', name: 'e'\n" +
+               "    runtime('x:y:2.0') {\n" +
+               "        exclude module: 'z'\n" +
+               "    }\n" +
+               "}\n";
+
+      GradleScriptIndex index = GradleScriptIndex.of(source);
+
+      assertTrue(index.isForgeLibraryIncluded());
+      assertEquals(1, index.getPlugins().size());
+      assertEquals("java", index.getPlugins().get(0).getValue().getClazz());
+      assertEquals(2, index.getPlugins().get(0).getElement().getLineNumber());
+      assertEquals("value", index.getDirectProperties().get("prop"));
+      assertEquals(1, index.getRepositories().size());
+      assertEquals("http://repo.example.org/", index.getRepositories().get(0).getValue().getUrl());
+
+      assertEquals(2, index.getDependencies().size());
+      assertEquals("b", index.getDependencies().get(0).getValue().getName());
+      assertEquals(15, index.getDependencies().get(0).getElement().getLineNumber());
+      GradleDependency runtime = index.getDependencies().get(1).getValue();
+      assertEquals("runtime", runtime.getConfigurationName());
+      assertEquals(1, runtime.getExcludedDependencies().size());
+      assertEquals("x", runtime.getExcludedDependencies().get(0).getGroup());
+
+      assertEquals(1, index.getDirectDependencies().size());
+      assertEquals("d", index.getDirectDependencies().get(0).getValue().getGroup());
+      assertEquals(1, index.getManagedDependencies().size());
+      assertEquals("compile", index.getManagedDependencies().get(0).getValue().getConfigurationName());
+      assertEquals(11, index.getManagedDependencies().get(0).getElement().getLineNumber());
+   }
+
+   @Test
+   public void testIndexEmptyScript()
+   {
+      GradleScriptIndex index = GradleScriptIndex.of("");
+
+      assertFalse(index.isForgeLibraryIncluded());
+      assertTrue(index.getDependencies().isEmpty());
+      assertTrue(index.getPlugins().isEmpty());
+      assertTrue(index.getDirectProperties().isEmpty());
+   }
+}
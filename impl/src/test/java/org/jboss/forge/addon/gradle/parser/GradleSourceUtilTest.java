@@ -9,6 +9,7 @@ package org.jboss.forge.addon.gradle.parser;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +26,46 @@ import org.junit.Test;
  */
 public class GradleSourceUtilTest
 {
+   @Test
+   public void testGetIncludedBuilds()
+   {
+      String source = "" +
+               "rootProject.name = 'composite'\n" +
+               "include 'app'\n" +
+               "includeBuild '../library'\n" +
+               "includeBuild('../tools') {\n" +
+               "    dependencySubstitution {\n" +
+               "    }\n" +
+               "}\n" +
+               "includeBuild(\"plugins\")\n";
+      List<String> builds = GradleSourceUtil.getIncludedBuilds(source);
+      assertEquals(3, builds.size());
+      assertEquals("../library", builds.get(0));
+      assertEquals("../tools", builds.get(1));
+      assertEquals("plugins", builds.get(2));
+   }
+
+   @Test
+   public void testGetIncludedProjects()
+   {
+      String source = "" +
+               "rootProject.name = 'multi'\n" +
+               "include 'api', ':impl:core',\n" +
+               "        'tests'\n" +
+               "include(':web'); includeFlat 'sibling'\n" +
+               "includeBuild '../library'\n" +
+               "project(':api').name = 'client'\n";
+      assertEquals(Arrays.asList("api", ":impl:core", "tests", ":web", "sibling"),
+               GradleSourceUtil.getIncludedProjects(source));
+
+      // Without lexer only statements including a single project are recognized
+      source = "" +
+               "def withPlugins = version != null\n" +
+               "include 'app'\n" +
+               "include 'api', 'impl'\n";
+      assertEquals(Arrays.asList("app"), GradleSourceUtil.getIncludedProjects(source));
+   }
+
    @Test
    public void testSetArchiveName()
    {
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GroovyDslParserTest
+{
+   @Test
+   public void testParseLikeGroovy()
+   {
+      String source = "" +
+               "apply plugin: 'java' // comment\n" +
+               "project.apply from: 'forge.gradle'\n" +
+               "version = '1.0'; ext.prop = \"value\"\n" +
+               "def local = 'x'\n" +
+               "/* multi\n" +
+               "   line */\n" +
+               "repositories {\n" +
+               "    mavenCentral()\n" +
+               "    maven {\n" +
+               "        url 'http://repo.example.org/'\n" +
+               "    }\n" +
+               "}\n" +
+               "dependencies\n" +
+               "{\n" +
+               "    compile 'a:b:1.0', 'c:d:2.0'\n" +
+               "    compile group: 'g', name: 'n',\n" +
+               "            version: '3.0'\n" +
+               "    runtime('x:y:2.0') {\n" +
+               "        exclude module: 'z'\n" +
+               "    }\n" +
+               "    testCompile name: 'junit', transitive: false, { }\n" +
+               "    compile project(':sub') {\n" +
+               "        transitive = false\n" +
+               "    }\n" +
+               "}\n" +
+               "task hello(type: Copy) {\n" +
+               "    from 'src'\n" +
+               "}\n" +
+               "task old << {\n" +
+               "    println 'old'\n" +
+               "}\n" +
+               "'constant'\r\n" +
+               "sourceSets.main.java.srcDirs = ['src', 'gen']\r\n";
+
+      LineIndex lineIndex = LineIndex.of(source);
+      InvocationWithClosure dslRoot = GroovyDslParser.parse(source, lineIndex);
+      assertNotNull(dslRoot);
+      assertTreeEquals(GroovyCompilerParser.parse(source, lineIndex), dslRoot);
+   }
+
+   @Test
+   public void testUnsupportedSyntaxFallsBackToGroovy()
+   {
+      String source = "" +
+               "def version = '1.0'\n" +
+               "compile \"a:b:$version\"\n" +
+               "ext.x = 'y'\n";
+
+      assertNull(GroovyDslParser.parse(source, LineIndex.of(source)));
+
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      assertEquals(1, parser.getVariableAssignments().size());
+      assertEquals("ext.x", parser.getVariableAssignments().get(0).getVariable());
+      assertEquals(3, parser.getVariableAssignments().get(0).getLineNumber());
+   }
+
+   static void assertTreeEquals(InvocationWithClosure expected, InvocationWithClosure actual)
+   {
+      assertElementEquals(expected, actual);
+      assertEquals(expected.getMethodName(), actual.getMethodName());
+      assertEquals(expected.getStringParameter(), actual.getStringParameter());
+      assertEquals(expected.getMapParameter(), actual.getMapParameter());
+
+      assertEquals(expected.getInvocationsWithString().size(), actual.getInvocationsWithString().size());
+      for (int i = 0; i < expected.getInvocationsWithString().size(); i++)
+      {
+         InvocationWithString expectedInvocation = expected.getInvocationsWithString().get(i);
+         InvocationWithString actualInvocation = actual.getInvocationsWithString().get(i);
+         assertElementEquals(expectedInvocation, actualInvocation);
+         assertEquals(expectedInvocation.getMethodName(), actualInvocation.getMethodName());
+         assertEquals(expectedInvocation.getString(), actualInvocation.getString());
+      }
+
+      assertEquals(expected.getInvocationsWithMap().size(), actual.getInvocationsWithMap().size());
+      for (int i = 0; i < expected.getInvocationsWithMap().size(); i++)
+      {
+         InvocationWithMap expectedInvocation = expected.getInvocationsWithMap().get(i);
+         InvocationWithMap actualInvocation = actual.getInvocationsWithMap().get(i);
+         assertElementEquals(expectedInvocation, actualInvocation);
+         assertEquals(expectedInvocation.getMethodName(), actualInvocation.getMethodName());
+         assertEquals(expectedInvocation.getParameters(), actualInvocation.getParameters());
+      }
+
+      assertEquals(expected.getVariableAssignments().size(), actual.getVariableAssignments().size());
+      for (int i = 0; i < expected.getVariableAssignments().size(); i++)
+      {
+         VariableAssignment expectedAssignment = expected.getVariableAssignments().get(i);
+         VariableAssignment actualAssignment = actual.getVariableAssignments().get(i);
+         assertElementEquals(expectedAssignment, actualAssignment);
+         assertEquals(expectedAssignment.getVariable(), actualAssignment.getVariable());
+         assertEquals(expectedAssignment.getValue(), actualAssignment.getValue());
+      }
+
+      assertEquals(expected.getInvocationsWithClosure().size(), actual.getInvocationsWithClosure().size());
+      for (int i = 0; i < expected.getInvocationsWithClosure().size(); i++)
+      {
+         assertTreeEquals(expected.getInvocationsWithClosure().get(i), actual.getInvocationsWithClosure().get(i));
+      }
+   }
+
+   private static void assertElementEquals(SourceCodeElement expected, SourceCodeElement actual)
+   {
+      assertEquals(expected.getCode(), actual.getCode());
+      assertEquals(expected.getLineNumber(), actual.getLineNumber());
+      assertEquals(expected.getColumnNumber(), actual.getColumnNumber());
+      assertEquals(expected.getLastLineNumber(), actual.getLastLineNumber());
+      assertEquals(expected.getLastColumnNumber(), actual.getLastColumnNumber());
+   }
+}
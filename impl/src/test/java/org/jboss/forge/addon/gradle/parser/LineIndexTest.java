@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class LineIndexTest
+{
+   @Test
+   public void testPositionMatchesSplitLines()
+   {
+      String[] sources = { "", "a", "a\n", "a\n\n", "ab\ncd\n\nef", "x {\r\n  y\r\n}\r\n" };
+      for (String source : sources)
+      {
+         String[] lines = source.split("\n");
+         LineIndex lineIndex = LineIndex.of(source);
+         assertEquals(source, lines.length, lineIndex.getLineCount());
+
+         int position = 0;
+         for (int line = 0; line < lines.length; line++)
+         {
+            for (int column = 0; column <= lines[line].length(); column++)
+            {
+               assertEquals(position + column, lineIndex.position(line + 1, column + 1));
+            }
+            position += lines[line].length() + 1;
+         }
+      }
+   }
+
+   @Test
+   public void testLineAndColumnOfPosition()
+   {
+      String source = "apply plugin: 'java'\n\ndependencies {\n}\n";
+      LineIndex lineIndex = LineIndex.of(source);
+
+      assertEquals(1, lineIndex.lineNumber(0));
+      assertEquals(1, lineIndex.columnNumber(0));
+      assertEquals(1, lineIndex.lineNumber(20));
+      assertEquals(21, lineIndex.columnNumber(20));
+      assertEquals(2, lineIndex.lineNumber(21));
+      assertEquals(3, lineIndex.lineNumber(22));
+      assertEquals(5, lineIndex.columnNumber(26));
+      assertEquals(4, lineIndex.lineNumber(source.indexOf('}')));
+
+      for (int position = 0; position < source.length() - 1; position++)
+      {
+         assertEquals(position,
+                  lineIndex.position(lineIndex.lineNumber(position), lineIndex.columnNumber(position)));
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testColumnExceedsLine()
+   {
+      LineIndex.of("ab\ncd\n").position(1, 4);
+   }
+
+   @Test
+   public void testPositionsInLargeScript()
+   {
+      int count = 8000;
+      String source = dependenciesScript(count);
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      List<InvocationWithString> deps = parser.getInvocationsWithClosure().get(0).getInvocationsWithString();
+      assertEquals(count, deps.size());
+
+      // Positions of parsed elements match positions found by splitting the source into lines
+      String[] lines = source.split("\n");
+      int position = lines[0].length() + 1;
+      for (int i = 0; i < count; i++)
+      {
+         InvocationWithString dep = deps.get(i);
+         int column = lines[i + 1].indexOf("compile");
+         assertEquals(i + 2, dep.getLineNumber());
+         assertEquals(column + 1, dep.getColumnNumber());
+         assertEquals(position + column, dep.getStartPosition());
+         assertEquals(lines[i + 1].substring(column), dep.getCode());
+         assertEquals(i + 2, parser.getLineIndex().lineNumber(dep.getStartPosition()));
+         position += lines[i + 1].length() + 1;
+      }
+   }
+
+   private static String dependenciesScript(int count)
+   {
+      StringBuilder builder = new StringBuilder("dependencies {\n");
+      for (int i = 0; i < count; i++)
+      {
+         builder.append("    compile 'org.example:artifact").append(i).append(":1.0'\n");
+      }
+      return builder.append("}\n").toString();
+   }
+}
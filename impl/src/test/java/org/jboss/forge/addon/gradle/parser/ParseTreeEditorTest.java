@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.jboss.forge.addon.gradle.parser.GroovyDslParserTest.assertTreeEquals;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class ParseTreeEditorTest
+{
+   private static final String SOURCE = "" +
+            "apply plugin: 'java'\n" +
+            "repositories {\n" +
+            "    mavenCentral()\n" +
+            "}\n" +
+            "dependencies {\n" +
+            "    compile 'a:b:1.0'\n" +
+            "    runtime('c:d:2.0') {\n" +
+            "        exclude module: 'e'\n" +
+            "    }\n" +
+            "}  // comment\n" +
+            "allprojects { version = '1.0' }; description = 'x'\n" +
+            "apply from: 'forge.gradle'\n";
+
+   @Test
+   public void testEditInsideBlock()
+   {
+      int position = SOURCE.indexOf("    runtime");
+      assertEditedLikeParsed(position, position, "    testCompile 'f:g:3.0'\n    testRuntime group: 'h'\n");
+
+      int start = SOURCE.indexOf("    compile");
+      assertEditedLikeParsed(start, SOURCE.indexOf("    runtime"), "");
+
+      position = SOURCE.indexOf("'1.0' }");
+      assertEditedLikeParsed(position, position + 5, "'2.0'\n    group = 'org.example'\n");
+
+      position = SOURCE.indexOf("comment");
+      assertEditedLikeParsed(position, position, "longer ");
+   }
+
+   @Test
+   public void testEditChangingBlockStructure()
+   {
+      // Closing brace creates another top level statement
+      int position = SOURCE.indexOf("    mavenCentral");
+      assertNull(edit(position, position, "}\nx 'y'\nz {\n"));
+
+      // Edited block is not valid anymore
+      position = SOURCE.indexOf("}  // comment");
+      assertNull(edit(position, position + 1, ""));
+
+      // Edit outside of blocks
+      position = SOURCE.indexOf("java");
+      assertNull(edit(position, position + 4, "groovy"));
+   }
+
+   @Test
+   public void testSourceUtilReusesParseTree()
+   {
+      SimpleGroovyParser.fromSource(SOURCE);
+      String result = SourceUtil.insertIntoInvocationAtPath(SOURCE, "maven { url 'http://example.org' }",
+               "repositories");
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(result);
+
+      InvocationWithClosure parsed = SimpleGroovyParser.parseTree(result, LineIndex.of(result));
+      assertEquals(parsed.getInvocationsWithClosure().size(), parser.getInvocationsWithClosure().size());
+      for (int i = 0; i < parsed.getInvocationsWithClosure().size(); i++)
+      {
+         assertTreeEquals(parsed.getInvocationsWithClosure().get(i), parser.getInvocationsWithClosure().get(i));
+      }
+      assertEquals(2, parser.getInvocationsWithMap().size());
+      assertEquals(13, parser.getInvocationsWithMap().get(1).getLineNumber());
+   }
+
+   private void assertEditedLikeParsed(int start, int end, String replacement)
+   {
+      String editedSource = SOURCE.substring(0, start) + replacement + SOURCE.substring(end);
+      InvocationWithClosure edited = edit(start, end, replacement);
+      assertNotNull(edited);
+      assertTreeEquals(SimpleGroovyParser.parseTree(editedSource, LineIndex.of(editedSource)), edited);
+   }
+
+   private InvocationWithClosure edit(int start, int end, String replacement)
+   {
+      String editedSource = SOURCE.substring(0, start) + replacement + SOURCE.substring(end);
+      return ParseTreeEditor.edit(SimpleGroovyParser.parseTree(SOURCE, LineIndex.of(SOURCE)), editedSource,
+               LineIndex.of(editedSource), start, end, replacement.length());
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class PropertiesSourceUtilTest
+{
+   @Test
+   public void testGetProperties()
+   {
+      String source = "" +
+               "# Build settings\n" +
+               "org.gradle.parallel=true\n" +
+               "org.gradle.jvmargs = -Xmx1g \\\n" +
+               "    -XX:+HeapDumpOnOutOfMemoryError\n" +
+               "! other comment\n" +
+               "version: 1.0\n";
+
+      Map<String, String> properties = PropertiesSourceUtil.getProperties(source);
+
+      assertEquals(3, properties.size());
+      assertEquals("true", properties.get("org.gradle.parallel"));
+      assertEquals("-Xmx1g -XX:+HeapDumpOnOutOfMemoryError", properties.get("org.gradle.jvmargs"));
+      assertEquals("1.0", properties.get("version"));
+   }
+
+   @Test
+   public void testSetExistingProperty()
+   {
+      String source = "" +
+               "# Build settings\n" +
+               "org.gradle.parallel = false\n" +
+               "version=1.0\n";
+
+      String result = PropertiesSourceUtil.setProperty(source, "org.gradle.parallel", "true");
+
+      assertEquals("" +
+               "# Build settings\n" +
+               "org.gradle.parallel = true\n" +
+               "version=1.0\n", result);
+   }
+
+   @Test
+   public void testSetMultilineProperty()
+   {
+      String source = "" +
+               "org.gradle.jvmargs=-Xmx1g \\\n" +
+               "    -XX:+HeapDumpOnOutOfMemoryError\n" +
+               "version=1.0\n";
+
+      String result = PropertiesSourceUtil.setProperty(source, "org.gradle.jvmargs", "-Xmx2g");
+
+      assertEquals("" +
+               "org.gradle.jvmargs=-Xmx2g\n" +
+               "version=1.0\n", result);
+   }
+
+   @Test
+   public void testSetNewProperty()
+   {
+      String source = "version=1.0";
+
+      String result = PropertiesSourceUtil.setProperty(source, "org.gradle.caching", "true");
+
+      assertEquals("" +
+               "version=1.0\n" +
+               "org.gradle.caching=true\n", result);
+      assertEquals("org.gradle.caching=true\n", PropertiesSourceUtil.setProperty("", "org.gradle.caching", "true"));
+   }
+
+   @Test
+   public void testRemoveProperty()
+   {
+      String source = "" +
+               "# Build settings\n" +
+               "org.gradle.parallel=true\n" +
+               "version=1.0\n";
+
+      String result = PropertiesSourceUtil.removeProperty(source, "org.gradle.parallel");
+
+      assertEquals("" +
+               "# Build settings\n" +
+               "version=1.0\n", result);
+   }
+}
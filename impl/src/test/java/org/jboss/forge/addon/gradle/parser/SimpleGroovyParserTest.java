@@ -178,6 +178,38 @@ public class SimpleGroovyParserTest
       assertEquals("testRuntime", invocation.getInvocationsWithString().get(0).getMethodName());
    }
 
+   @Test
+   public void testAllInvocationAtNestedPath()
+   {
+      String source = "" +
+               "a {\n" +
+               "    b {\n" +
+               "        c { x 'first' }\n" +
+               "        c { x 'second' }\n" +
+               "    }\n" +
+               "}\n" +
+               "b {\n" +
+               "    c { x 'top' }\n" +
+               "}\n" +
+               "a {\n" +
+               "    b {\n" +
+               "        c { x 'third' }\n" +
+               "    }\n" +
+               "}\n";
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+
+      List<InvocationWithClosure> list = parser.allInvocationsAtPath("a", "b", "c");
+      assertEquals(3, list.size());
+      assertEquals("first", list.get(0).getInvocationsWithString().get(0).getString());
+      assertEquals("second", list.get(1).getInvocationsWithString().get(0).getString());
+      assertEquals("third", list.get(2).getInvocationsWithString().get(0).getString());
+
+      assertEquals(2, parser.allInvocationsAtPath("a").size());
+      assertEquals(1, parser.allInvocationsAtPath("b", "c").size());
+      assertTrue(parser.allInvocationsAtPath("c").isEmpty());
+      assertTrue(parser.allInvocationsAtPath("a", "c").isEmpty());
+   }
+
    @Test
    public void testLineColumnNumbers()
    {
@@ -235,6 +267,34 @@ public class SimpleGroovyParserTest
       assertEquals("clojure {\n}", closureInv.getCode());
    }
 
+   @Test
+   public void testCodePositions()
+   {
+      // Second argument is a GString, so the second source is parsed by Groovy compiler
+      for (String argument : new String[] { "'x'", "\"$x\"" })
+      {
+         String source = "" +
+                  "a {\n" +
+                  "    b {\n" +
+                  "        c " + argument + "\n" +
+                  "    }\n" +
+                  "}\n";
+         SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+
+         InvocationWithClosure a = parser.getInvocationsWithClosure().get(0);
+         InvocationWithClosure b = a.getInvocationsWithClosure().get(0);
+         InvocationWithString c = b.getInvocationsWithString().get(0);
+
+         assertEquals(0, a.getStartPosition());
+         assertEquals(source.length() - 1, a.getEndPosition());
+         assertEquals(source.indexOf("b {"), b.getStartPosition());
+         assertEquals(source.indexOf("}"), b.getEndPosition() - 1);
+         assertEquals(source.indexOf("c "), c.getStartPosition());
+         assertEquals(source.substring(c.getStartPosition(), c.getEndPosition()), c.getCode());
+         assertEquals(source.substring(b.getStartPosition(), b.getEndPosition()), b.getCode());
+      }
+   }
+
    @Test
    public void testGStringVariableAssignment()
    {
@@ -348,4 +408,16 @@ public class SimpleGroovyParserTest
       assertEquals(1, excludeParams.size());
       assertEquals("y", excludeParams.get("module"));
    }
+
+   @Test
+   public void testSameSourceIsParsedOnce()
+   {
+      String source = "dependencies {\n" +
+               "    compile 'x:y:z'\n" +
+               "}\n";
+
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      assertSame(parser, SimpleGroovyParser.fromSource(new String(source)));
+      assertNotSame(parser, SimpleGroovyParser.fromSource(source + "\n"));
+   }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.addon.gradle.model.GradleDependency;
+import org.jboss.forge.addon.gradle.model.GradleDependencyBuilder;
+import org.jboss.forge.addon.gradle.model.GradleModel;
+import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.model.GradlePlugin;
+import org.jboss.forge.addon.gradle.model.GradlePluginBuilder;
+import org.jboss.forge.addon.gradle.model.GradlePluginType;
+import org.jboss.forge.addon.gradle.model.GradleRepository;
+import org.jboss.forge.addon.gradle.model.GradleRepositoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleModelApplyUtilTest
+{
+   private GradleModelBuilder model;
+
+   @Before
+   public void prepareModel()
+   {
+      Map<String, String> properties = new HashMap<String, String>();
+      properties.put("direct", "1");
+      Map<String, String> effectiveProperties = new HashMap<String, String>(properties);
+      effectiveProperties.put("inherited", "2");
+
+      model = GradleModelBuilder.create()
+               .setGroup("org.example")
+               .setName("example")
+               .setVersion("1.0")
+               .setPackaging("jar")
+               .setArchiveName("example-1.0.jar")
+               .setSourceCompatibility("1.7")
+               .setTargetCompatibility("1.7")
+               .setDependencies(Arrays.<GradleDependency> asList(
+                        GradleDependencyBuilder.create("compile", "a:a:1.0")))
+               .setEffectiveDependencies(Arrays.<GradleDependency> asList(
+                        GradleDependencyBuilder.create("compile", "a:a:1.0"),
+                        GradleDependencyBuilder.create("compile", "b:b:1.0")))
+               .setPlugins(Arrays.<GradlePlugin> asList(GradlePluginBuilder.create(GradlePluginType.JAVA)))
+               .setEffectivePlugins(Arrays.<GradlePlugin> asList(GradlePluginBuilder.create(GradlePluginType.JAVA)))
+               .setRepositories(Arrays.<GradleRepository> asList())
+               .setEffectiveRepositories(Arrays.<GradleRepository> asList(
+                        GradleRepositoryBuilder.create().setName("central")
+                                 .setUrl("http://repo1.maven.org/maven2/")))
+               .setProperties(properties)
+               .setEffectiveProperties(effectiveProperties)
+               .setFingerprint("1");
+   }
+
+   @Test
+   public void testApplyDependencyChanges()
+   {
+      GradleModel newModel = GradleModelBuilder.create(model).setDependencies(Arrays.<GradleDependency> asList(
+               GradleDependencyBuilder.create("compile", "c:c:1.0")));
+
+      GradleModel result = GradleModelApplyUtil.apply(model, model, newModel);
+
+      assertEquals(2, result.getEffectiveDependencies().size());
+      assertFalse(result.hasEffectiveDependency(GradleDependencyBuilder.create("compile", "a:a:1.0")));
+      assertTrue(result.hasEffectiveDependency(GradleDependencyBuilder.create("compile", "b:b:1.0")));
+      assertTrue(result.hasEffectiveDependency(GradleDependencyBuilder.create("compile", "c:c:1.0")));
+      assertEquals("1", result.getFingerprint());
+   }
+
+   @Test
+   public void testApplyDependencyVersionChange()
+   {
+      GradleModel newModel = GradleModelBuilder.create(model).setDependencies(Arrays.<GradleDependency> asList(
+               GradleDependencyBuilder.create("compile", "b:b:2.0")));
+
+      GradleModel result = GradleModelApplyUtil.apply(model, model, newModel);
+
+      assertEquals(1, result.getEffectiveDependencies().size());
+      assertEquals("2.0", result.getEffectiveDependencies().get(0).getVersion());
+   }
+
+   @Test
+   public void testApplyProjectAndPluginChanges()
+   {
+      Map<String, String> properties = new HashMap<String, String>();
+      properties.put("added", "3");
+      GradleModel newModel = GradleModelBuilder.create(model)
+               .setVersion("2.0")
+               .setPlugins(Arrays.<GradlePlugin> asList(GradlePluginBuilder.create(GradlePluginType.WAR)))
+               .setProperties(properties);
+
+      GradleModel result = GradleModelApplyUtil.apply(model, model, newModel);
+
+      assertEquals("2.0", result.getVersion());
+      assertEquals(1, result.getEffectivePlugins().size());
+      assertEquals(GradlePluginType.WAR.getClazz(), result.getEffectivePlugins().get(0).getClazz());
+      assertEquals(1, result.getEffectiveRepositories().size());
+      assertFalse(result.getEffectiveProperties().containsKey("direct"));
+      assertEquals("2", result.getEffectiveProperties().get("inherited"));
+      assertEquals("3", result.getEffectiveProperties().get("added"));
+   }
+
+   @Test
+   public void testRebaseKeepsConcurrentChanges()
+   {
+      // Other writer added dependency and property, and changed version
+      GradleModel current = GradleModelBuilder.create(model)
+               .setVersion("1.1")
+               .addDependency(GradleDependencyBuilder.create("compile", "b:b:1.0"))
+               .setProperty("other", "4");
+      // This writer, working on the older model, removed dependency and changed group and property
+      GradleModel newModel = GradleModelBuilder.create(model)
+               .setGroup("org.example.new")
+               .setDependencies(Arrays.<GradleDependency> asList(
+                        GradleDependencyBuilder.create("compile", "c:c:1.0")))
+               .setProperty("direct", "5");
+
+      GradleModel result = GradleModelApplyUtil.rebase(current, model, newModel);
+
+      assertEquals("org.example.new", result.getGroup());
+      assertEquals("1.1", result.getVersion());
+      assertEquals(2, result.getDependencies().size());
+      assertFalse(result.hasDependency(GradleDependencyBuilder.create("compile", "a:a:1.0")));
+      assertTrue(result.hasDependency(GradleDependencyBuilder.create("compile", "b:b:1.0")));
+      assertTrue(result.hasDependency(GradleDependencyBuilder.create("compile", "c:c:1.0")));
+      assertEquals("5", result.getProperties().get("direct"));
+      assertEquals("4", result.getProperties().get("other"));
+      assertEquals(1, result.getPlugins().size());
+   }
+
+   @Test
+   public void testRebaseDoesNotRestoreConcurrentlyRemovedEntries()
+   {
+      GradleModel current = GradleModelBuilder.create(model)
+               .setDependencies(Arrays.<GradleDependency> asList())
+               .removeProperty("direct");
+      GradleModel newModel = GradleModelBuilder.create(model).setVersion("2.0");
+
+      GradleModel result = GradleModelApplyUtil.rebase(current, model, newModel);
+
+      assertEquals("2.0", result.getVersion());
+      assertTrue(result.getDependencies().isEmpty());
+      assertTrue(result.getProperties().isEmpty());
+   }
+
+   @Test
+   public void testChangedSections()
+   {
+      GradleModel newModel = GradleModelBuilder.create(model)
+               .setVersion("2.0")
+               .setDependencies(Arrays.<GradleDependency> asList(
+                        GradleDependencyBuilder.create("compile", "a:a:2.0")));
+
+      Set<String> sections = GradleModelApplyUtil.changedSections(model, newModel);
+
+      assertEquals(2, sections.size());
+      assertTrue(sections.contains(GradleModelApplyUtil.PROJECT));
+      assertTrue(sections.contains(GradleModelApplyUtil.DEPENDENCIES));
+      assertTrue(GradleModelApplyUtil.changedSections(model, GradleModelBuilder.create(model)).isEmpty());
+   }
+}
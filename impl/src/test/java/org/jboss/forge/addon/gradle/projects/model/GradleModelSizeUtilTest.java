@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.forge.addon.gradle.model.GradleDependency;
+import org.jboss.forge.addon.gradle.model.GradleDependencyBuilder;
+import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.model.GradleSourceSet;
+import org.jboss.forge.addon.gradle.model.GradleSourceSetBuilder;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleModelSizeUtilTest
+{
+   @Test
+   public void testSizeGrowsWithModel()
+   {
+      GradleModelBuilder model = GradleModelBuilder.create();
+      long emptySize = GradleModelSizeUtil.estimateSize(model);
+      assertTrue(emptySize > 0);
+
+      List<GradleDependency> deps = new ArrayList<GradleDependency>();
+      for (int i = 0; i < 100; i++)
+      {
+         deps.add(GradleDependencyBuilder.create("compile", "group:name" + i + ":1.0"));
+      }
+      model.setEffectiveDependencies(deps);
+      long withDependencies = GradleModelSizeUtil.estimateSize(model);
+      assertTrue(withDependencies > emptySize);
+
+      model.setEffectiveSourceSets(Arrays.<GradleSourceSet> asList(GradleSourceSetBuilder.create()
+               .setName("main")
+               .setCompileClasspath(Arrays.asList("/home/user/.m2/repository/a.jar", "/home/user/b.jar"))));
+      assertTrue(GradleModelSizeUtil.estimateSize(model) > withDependencies);
+   }
+}
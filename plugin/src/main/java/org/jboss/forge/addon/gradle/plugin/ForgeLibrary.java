@@ -0,0 +1,283 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.plugin;
+
+import groovy.lang.Closure;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiled counterpart of the forge.gradle library, installed when Forge evaluates the project through its init script
+ * (forge.gradle then skips its own installation). Adds <i>managed</i>, <i>direct</i> and <i>archiveName</i> methods to
+ * the project.
+ * <p/>
+ * Direct dependencies are added with their managed version as soon as both <i>direct</i> and <i>managed</i>
+ * declarations are known, so the version is part of the declared dependency (and of published descriptors). Managed
+ * dependency declared again, e.g. by a subproject overriding <i>allprojects</i>, replaces the added dependency, so the
+ * latest managed version wins.
+ *
+ * @author Adam Wyłuda
+ */
+class ForgeLibrary
+{
+   static final String INSTALLED_PROPERTY = "forgeInstalled";
+   static final String MANAGED_METHOD = "managed";
+   static final String DIRECT_METHOD = "direct";
+   static final String ARCHIVE_NAME_METHOD = "archiveName";
+
+   private final Project project;
+   private final Map<String, ManagedDependency> managedDependencies = new HashMap<String, ManagedDependency>();
+   private final Set<String> directDependencies = new LinkedHashSet<String>();
+   // Direct dependencies already added to their configurations
+   private final Map<String, Dependency> addedDependencies = new HashMap<String, Dependency>();
+   private String archiveName;
+
+   private ForgeLibrary(Project project)
+   {
+      this.project = project;
+   }
+
+   /**
+    * Installs Forge library into given project, unless it was already installed by the script version of library.
+    */
+   static void install(Project project)
+   {
+      ExtraPropertiesExtension ext = project.getExtensions().getExtraProperties();
+      if (ext.has(INSTALLED_PROPERTY))
+      {
+         return;
+      }
+      ext.set(INSTALLED_PROPERTY, true);
+
+      final ForgeLibrary library = new ForgeLibrary(project);
+      ext.set(MANAGED_METHOD, new ManagedClosure(library));
+      ext.set(DIRECT_METHOD, new DirectClosure(library));
+      ext.set(ARCHIVE_NAME_METHOD, new ArchiveNameClosure(library));
+
+      // Configuration of a direct dependency may be created after both declarations
+      project.getConfigurations().whenObjectAdded(new Action<Configuration>()
+      {
+         @Override
+         public void execute(Configuration configuration)
+         {
+            library.addDirectDependencies(configuration);
+         }
+      });
+
+      project.afterEvaluate(new Action<Project>()
+      {
+         @Override
+         public void execute(Project project)
+         {
+            library.applyArchiveName();
+         }
+      });
+   }
+
+   private void managed(Map<String, ?> map, Closure<?> closure)
+   {
+      ManagedDependency dep = new ManagedDependency(map, closure);
+      String key = key(dep.group, dep.name);
+      managedDependencies.put(key, dep);
+
+      // Direct dependency might have been declared before managed one, or with previous managed version
+      if (directDependencies.contains(key))
+      {
+         removeDirectDependency(key);
+         addDirectDependency(key, dep);
+      }
+   }
+
+   private void direct(Map<String, ?> map)
+   {
+      String key = key(string(map, "group"), string(map, "name"));
+      if (!directDependencies.add(key))
+      {
+         return;
+      }
+      ManagedDependency dep = managedDependencies.get(key);
+      if (dep != null)
+      {
+         addDirectDependency(key, dep);
+      }
+   }
+
+   /**
+    * Adds dependency with its managed version to its configuration, unless the configuration doesn't exist yet.
+    */
+   private void addDirectDependency(String key, ManagedDependency dep)
+   {
+      Configuration configuration = project.getConfigurations().findByName(dep.configuration);
+      if (configuration != null)
+      {
+         addedDependencies.put(key, dep.addTo(project, configuration));
+      }
+   }
+
+   private void addDirectDependencies(Configuration configuration)
+   {
+      for (String key : directDependencies)
+      {
+         ManagedDependency dep = managedDependencies.get(key);
+         if (dep != null && !addedDependencies.containsKey(key) && configuration.getName().equals(dep.configuration))
+         {
+            addedDependencies.put(key, dep.addTo(project, configuration));
+         }
+      }
+   }
+
+   private void removeDirectDependency(String key)
+   {
+      Dependency added = addedDependencies.remove(key);
+      if (added != null)
+      {
+         for (Configuration configuration : project.getConfigurations())
+         {
+            configuration.getDependencies().remove(added);
+         }
+      }
+   }
+
+   private void applyArchiveName()
+   {
+      Task assemble = project.getTasks().findByName("assemble");
+      if (archiveName == null || assemble == null)
+      {
+         return;
+      }
+      for (Task task : assemble.getTaskDependencies().getDependencies(assemble))
+      {
+         if (task instanceof AbstractArchiveTask)
+         {
+            AbstractArchiveTask archiveTask = (AbstractArchiveTask) task;
+            String oldName = archiveTask.getArchiveName();
+            archiveTask.setArchiveName(archiveName + oldName.substring(oldName.lastIndexOf('.')));
+         }
+      }
+   }
+
+   private static String key(String group, String name)
+   {
+      return group + ":" + name;
+   }
+
+   private static String string(Map<String, ?> map, String key)
+   {
+      Object value = map.get(key);
+      return value != null ? value.toString() : null;
+   }
+
+   private static class ManagedDependency
+   {
+      private final String group;
+      private final String name;
+      private final String version;
+      private final String configuration;
+      private final String classifier;
+      private final String ext;
+      private final Closure<?> closure;
+
+      ManagedDependency(Map<String, ?> map, Closure<?> closure)
+      {
+         this.group = string(map, "group");
+         this.name = string(map, "name");
+         this.version = string(map, "version");
+         this.configuration = string(map, "configuration");
+         this.classifier = string(map, "classifier");
+         this.ext = string(map, "ext");
+         this.closure = closure;
+      }
+
+      Dependency addTo(Project project, Configuration configuration)
+      {
+         Map<String, String> notation = new HashMap<String, String>();
+         notation.put("group", group);
+         notation.put("name", name);
+         if (version != null)
+         {
+            notation.put("version", version);
+         }
+         if (classifier != null)
+         {
+            notation.put("classifier", classifier);
+         }
+         if (ext != null)
+         {
+            notation.put("ext", ext);
+         }
+
+         if (closure != null)
+         {
+            return project.getDependencies().add(configuration.getName(), notation, closure);
+         }
+         return project.getDependencies().add(configuration.getName(), notation);
+      }
+   }
+
+   private static class ManagedClosure extends Closure<Void>
+   {
+      private final ForgeLibrary library;
+
+      ManagedClosure(ForgeLibrary library)
+      {
+         super(library);
+         this.library = library;
+      }
+
+      public void doCall(Map<String, ?> map)
+      {
+         library.managed(map, null);
+      }
+
+      public void doCall(Map<String, ?> map, Closure<?> closure)
+      {
+         library.managed(map, closure);
+      }
+   }
+
+   private static class DirectClosure extends Closure<Void>
+   {
+      private final ForgeLibrary library;
+
+      DirectClosure(ForgeLibrary library)
+      {
+         super(library);
+         this.library = library;
+      }
+
+      public void doCall(Map<String, ?> map)
+      {
+         library.direct(map);
+      }
+   }
+
+   private static class ArchiveNameClosure extends Closure<Void>
+   {
+      private final ForgeLibrary library;
+
+      ArchiveNameClosure(ForgeLibrary library)
+      {
+         super(library);
+         this.library = library;
+      }
+
+      public void doCall(Object archiveName)
+      {
+         library.archiveName = archiveName.toString();
+      }
+   }
+}
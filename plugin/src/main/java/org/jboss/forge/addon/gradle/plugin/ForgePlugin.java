@@ -2,10 +2,21 @@ package org.jboss.forge.addon.gradle.plugin;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.SourceSet;
 import org.gradle.tooling.provider.model.ToolingModelBuilder;
 import org.gradle.tooling.provider.model.ToolingModelBuilderRegistry;
+import org.jboss.forge.addon.gradle.model.GradleBuildFingerprint;
 import org.jboss.forge.addon.gradle.model.GradleModel;
 import org.jboss.forge.addon.gradle.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.model.GradleModelDelta;
+import org.jboss.forge.addon.gradle.model.GradleModelDeltaBuilder;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModel;
+import org.jboss.forge.addon.gradle.model.GradleMultiProjectModelBuilder;
 import org.jboss.forge.addon.gradle.model.GradlePlugin;
 import org.jboss.forge.addon.gradle.model.GradlePluginBuilder;
 import org.jboss.forge.addon.gradle.model.GradlePluginType;
@@ -13,9 +24,19 @@ import org.jboss.forge.addon.gradle.model.GradleSourceDirectory;
 import org.jboss.forge.addon.gradle.model.GradleSourceDirectoryBuilder;
 import org.jboss.forge.addon.gradle.model.GradleSourceSet;
 import org.jboss.forge.addon.gradle.model.GradleSourceSetBuilder;
+import org.jboss.forge.addon.gradle.model.GradleTask;
+import org.jboss.forge.addon.gradle.model.GradleTaskBuilder;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Adam Wyłuda
@@ -34,37 +55,330 @@ public class ForgePlugin implements Plugin<Project>
    public void apply(Project project)
    {
       registry.register(new ForgeModelBuilder());
+      ForgeLibrary.install(project);
    }
 
    private static class ForgeModelBuilder implements ToolingModelBuilder
    {
+      private static final String FORGE_PLUGIN_VERSION_PROPERTY = "forgePluginVersion";
+      private static final String FORGE_MODEL_FINGERPRINT_PROPERTY = "forgeModelFingerprint";
+
+      private static final int MAX_CACHED_MODELS = 64;
+
+      /**
+       * Models recently built by this daemon, keyed by project directory. Entry is valid as long as its fingerprint
+       * matches the current fingerprint of project build inputs and the project has no changing dependencies.
+       */
+      private static final Map<String, GradleModel> MODEL_CACHE = Collections.synchronizedMap(
+               new LinkedHashMap<String, GradleModel>(16, 0.75f, true)
+               {
+                  private static final long serialVersionUID = 1L;
+
+                  @Override
+                  protected boolean removeEldestEntry(Map.Entry<String, GradleModel> eldest)
+                  {
+                     return size() > MAX_CACHED_MODELS;
+                  }
+               });
+
       @Override
       public boolean canBuild(String modelName)
       {
-         return modelName.equals(GradleModel.class.getName());
+         return modelName.equals(GradleModel.class.getName()) || modelName.equals(GradleModelDelta.class.getName())
+                  || modelName.equals(GradleMultiProjectModel.class.getName());
       }
 
       @Override
       public Object buildAll(String modelName, Project project)
+      {
+         Map<String, String> systemProperties = project.getGradle().getStartParameter().getSystemPropertiesArgs();
+         String pluginVersion = systemProperties.get(FORGE_PLUGIN_VERSION_PROPERTY);
+         if (modelName.equals(GradleMultiProjectModel.class.getName()))
+         {
+            return buildMultiProjectModel(project, pluginVersion);
+         }
+
+         String fingerprint = GradleBuildFingerprint.calculate(project.getProjectDir(), pluginVersion);
+         String clientFingerprint = systemProperties.get(FORGE_MODEL_FINGERPRINT_PROPERTY);
+         boolean delta = modelName.equals(GradleModelDelta.class.getName());
+
+         // Client already has the model evaluated from current build inputs
+         if (!hasChangingDependencies(project) && fingerprint.equals(clientFingerprint))
+         {
+            return notModified(fingerprint, delta);
+         }
+
+         GradleModel previousModel = MODEL_CACHE.get(cacheKey(project));
+         GradleModel model = effectiveModel(project, fingerprint);
+         // Model of project with changing dependencies is evaluated again, but it may still be the same
+         if (model.getFingerprint().equals(clientFingerprint))
+         {
+            return notModified(model.getFingerprint(), delta);
+         }
+         if (!delta)
+         {
+            return model;
+         }
+         // Delta can be calculated only if client has the previous version of model
+         GradleModel base = previousModel != null && previousModel.getFingerprint().equals(clientFingerprint)
+                  ? previousModel : null;
+         return GradleModelDeltaBuilder.create(base, model);
+      }
+
+      /**
+       * Builds models of all projects of the build, one after another on the build thread. Resolving configurations
+       * and task inputs and outputs changes state of the projects, so it must not run concurrently; speeding up
+       * configuration of large builds is left to Gradle (parallel execution, configuration on demand).
+       */
+      private GradleMultiProjectModel buildMultiProjectModel(Project project, String pluginVersion)
+      {
+         // All projects share build inputs, so they are read only once
+         String buildInputsDigest = GradleBuildFingerprint.digestBuildInputs(project.getRootDir());
+         List<GradleModel> models = new ArrayList<GradleModel>();
+         for (Project subproject : project.getRootProject().getAllprojects())
+         {
+            String fingerprint = GradleBuildFingerprint.calculate(subproject.getProjectDir(), pluginVersion,
+                     buildInputsDigest);
+            models.add(effectiveModel(subproject, fingerprint));
+         }
+         return GradleMultiProjectModelBuilder.create().setProjectModels(models);
+      }
+
+      private Object notModified(String fingerprint, boolean delta)
+      {
+         return delta ? GradleModelDeltaBuilder.create().setBaseFingerprint(fingerprint).setFingerprint(fingerprint)
+                  : GradleModelBuilder.create().setFingerprint(fingerprint).setNotModified(true);
+      }
+
+      /**
+       * Returns cached model of the project if it was built from the same build inputs, otherwise builds a new one.
+       * Dependencies which are dynamic or changing may resolve differently with the same build inputs, so model of
+       * project which has them is always built again, and its fingerprint covers also the resolved files.
+       */
+      private GradleModel effectiveModel(Project project, String fingerprint)
+      {
+         String key = cacheKey(project);
+         boolean changingDependencies = hasChangingDependencies(project);
+         GradleModel cachedModel = MODEL_CACHE.get(key);
+         if (!changingDependencies && cachedModel != null && cachedModel.getFingerprint().equals(fingerprint))
+         {
+            return cachedModel;
+         }
+
+         GradleModelBuilder model = buildModel(project, fingerprint);
+         if (changingDependencies)
+         {
+            model.setFingerprint(GradleBuildFingerprint.withResolvedFiles(fingerprint, resolvedFiles(model)));
+         }
+         // Kept also when dependencies are changing, as a base of the next delta
+         MODEL_CACHE.put(key, model);
+         return model;
+      }
+
+      /**
+       * Returns true if the project declares dependency whose resolved version may change without changing the build
+       * scripts, i.e. dynamic version, snapshot or dependency explicitly marked as changing.
+       */
+      private boolean hasChangingDependencies(Project project)
+      {
+         for (Configuration configuration : project.getConfigurations())
+         {
+            for (Dependency dependency : configuration.getDependencies())
+            {
+               if (!(dependency instanceof ExternalModuleDependency))
+               {
+                  continue;
+               }
+               String version = dependency.getVersion();
+               if (((ExternalModuleDependency) dependency).isChanging() || version == null || version.endsWith("+")
+                        || version.startsWith("latest.") || version.endsWith("SNAPSHOT")
+                        || version.startsWith("[") || version.startsWith("(") || version.startsWith("]"))
+               {
+                  return true;
+               }
+            }
+         }
+         return false;
+      }
+
+      private List<String> resolvedFiles(GradleModel model)
+      {
+         List<String> files = new ArrayList<String>();
+         for (GradleSourceSet sourceSet : model.getEffectiveSourceSets())
+         {
+            files.addAll(sourceSet.getCompileClasspath());
+            files.addAll(sourceSet.getRuntimeClasspath());
+         }
+         for (GradleTask task : model.getEffectiveTasks())
+         {
+            files.addAll(task.getInputFiles());
+            files.addAll(task.getOutputFiles());
+         }
+         return files;
+      }
+
+      private String cacheKey(Project project)
+      {
+         return project.getProjectDir().getAbsolutePath();
+      }
+
+      private GradleModelBuilder buildModel(Project project, String fingerprint)
       {
          GradleModelBuilder model = GradleModelBuilder.create();
 
          model.setName(project.getName());
          model.setGroup(project.getGroup().toString());
+         model.setProjectPath(project.getPath());
+         model.setRootProjectPath(project.getRootDir().getAbsolutePath());
 
          ArrayList<GradlePlugin> plugins = new ArrayList<GradlePlugin>();
          plugins.add(GradlePluginBuilder.create(GradlePluginType.JAVA));
          model.setEffectivePlugins(plugins);
 
-         ArrayList<GradleSourceSet> sourceSets = new ArrayList<GradleSourceSet>();
-         ArrayList<GradleSourceDirectory> dirs = new ArrayList<GradleSourceDirectory>();
-         dirs.add(GradleSourceDirectoryBuilder.create().setPath("java"));
-         GradleSourceSetBuilder mainSourceSet = GradleSourceSetBuilder.create()
-                  .setName("main").setJavaDirectories(dirs);
-         sourceSets.add(mainSourceSet);
-         model.setEffectiveSourceSets(sourceSets);
+         model.setEffectiveSourceSets(effectiveSourceSets(project));
+         model.setEffectiveTasks(effectiveTasks(project));
+         model.setFingerprint(fingerprint);
 
          return model;
       }
+
+      /**
+       * Exports source sets of the project together with their resolved classpaths.
+       */
+      private List<GradleSourceSet> effectiveSourceSets(Project project)
+      {
+         List<GradleSourceSet> sourceSets = new ArrayList<GradleSourceSet>();
+
+         JavaPluginConvention javaConvention = project.getConvention().findPlugin(JavaPluginConvention.class);
+         if (javaConvention == null)
+         {
+            ArrayList<GradleSourceDirectory> dirs = new ArrayList<GradleSourceDirectory>();
+            dirs.add(GradleSourceDirectoryBuilder.create().setPath("java"));
+            GradleSourceSetBuilder mainSourceSet = GradleSourceSetBuilder.create()
+                     .setName("main").setJavaDirectories(dirs);
+            sourceSets.add(mainSourceSet);
+            return sourceSets;
+         }
+
+         for (SourceSet sourceSet : javaConvention.getSourceSets())
+         {
+            sourceSets.add(GradleSourceSetBuilder.create()
+                     .setName(sourceSet.getName())
+                     .setJavaDirectories(sourceDirectories(project, sourceSet.getJava().getSrcDirs()))
+                     .setResourceDirectories(sourceDirectories(project, sourceSet.getResources().getSrcDirs()))
+                     .setCompileClasspath(paths(project, sourceSet.getCompileClasspath()))
+                     .setRuntimeClasspath(paths(project, sourceSet.getRuntimeClasspath())));
+         }
+         return sourceSets;
+      }
+
+      private List<GradleSourceDirectory> sourceDirectories(Project project, Iterable<File> dirs)
+      {
+         List<GradleSourceDirectory> list = new ArrayList<GradleSourceDirectory>();
+         for (File dir : dirs)
+         {
+            list.add(GradleSourceDirectoryBuilder.create().setPath(project.relativePath(dir)));
+         }
+         return list;
+      }
+
+      /**
+       * Exports task graph of the project, dependencies of the tasks are referenced only by name (or path if they
+       * belong to other project). Inputs and outputs are exported as roots, so the model doesn't grow with number of
+       * source and class files.
+       */
+      private List<GradleTask> effectiveTasks(Project project)
+      {
+         Set<File> roots = fileRoots(project);
+         List<GradleTask> tasks = new ArrayList<GradleTask>();
+         for (Task task : project.getTasks())
+         {
+            GradleTaskBuilder builder = GradleTaskBuilder.create()
+                     .setName(task.getName())
+                     .setType(taskType(task))
+                     .setInputFiles(paths(project, task.getInputs().getFiles(), roots))
+                     .setOutputFiles(paths(project, task.getOutputs().getFiles(), roots));
+            for (Task dependency : task.getTaskDependencies().getDependencies(task))
+            {
+               String name = dependency.getProject() == project ? dependency.getName() : dependency.getPath();
+               builder.setDependsOn(GradleTaskBuilder.create().setName(name));
+            }
+            tasks.add(builder);
+         }
+         return tasks;
+      }
+
+      /**
+       * Returns directories which are registered as roots of task inputs and outputs by source sets: source
+       * directories and output directories. Gradle API exposes task inputs only as expanded file collections, so files
+       * under these directories are exported as the directories.
+       */
+      private Set<File> fileRoots(Project project)
+      {
+         Set<File> roots = new HashSet<File>();
+         JavaPluginConvention javaConvention = project.getConvention().findPlugin(JavaPluginConvention.class);
+         if (javaConvention == null)
+         {
+            return roots;
+         }
+         for (SourceSet sourceSet : javaConvention.getSourceSets())
+         {
+            for (File dir : sourceSet.getAllSource().getSrcDirs())
+            {
+               roots.add(dir.getAbsoluteFile());
+            }
+            roots.add(sourceSet.getOutput().getClassesDir().getAbsoluteFile());
+            roots.add(sourceSet.getOutput().getResourcesDir().getAbsoluteFile());
+         }
+         return roots;
+      }
+
+      private String taskType(Task task)
+      {
+         // Gradle generates decorated subclasses of the task types
+         String type = task.getClass().getName();
+         return type.endsWith("_Decorated") ? type.substring(0, type.length() - "_Decorated".length()) : type;
+      }
+
+      private List<String> paths(Project project, Iterable<File> files)
+      {
+         return paths(project, files, Collections.<File> emptySet());
+      }
+
+      /**
+       * Returns absolute paths of given files, files under one of given roots are represented by the root.
+       */
+      private List<String> paths(Project project, Iterable<File> files, Set<File> roots)
+      {
+         Set<String> paths = new LinkedHashSet<String>();
+         try
+         {
+            for (File file : files)
+            {
+               paths.add(root(file.getAbsoluteFile(), roots).getPath());
+            }
+         }
+         catch (RuntimeException e)
+         {
+            // Files which can't be resolved (e.g. because of missing dependencies) are not exported
+            project.getLogger().info("Couldn't resolve files", e);
+         }
+         return new ArrayList<String>(paths);
+      }
+
+      private File root(File file, Set<File> roots)
+      {
+         if (!roots.isEmpty())
+         {
+            for (File parent = file; parent != null; parent = parent.getParentFile())
+            {
+               if (roots.contains(parent))
+               {
+                  return parent;
+               }
+            }
+         }
+         return file;
+      }
    }
 }